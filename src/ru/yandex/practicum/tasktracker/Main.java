@@ -14,6 +14,10 @@ import java.time.Month;
 
 public class Main {
     public static void main(String[] args) throws IOException, InterruptedException {
+        // without it a response on a kept-alive connection waits for the client's delayed ACK, about 40 ms;
+        // the JDK server reads it once, so it is set before any server is created, or passed as
+        // -Dsun.net.httpserver.nodelay=true when the servers are started elsewhere
+        System.setProperty("sun.net.httpserver.nodelay", "true");
         KVServer kvServer = new KVServer();
         kvServer.start();
         HttpTaskManager taskManager1 = new HttpTaskManager(Managers.getDefaultHistory(),
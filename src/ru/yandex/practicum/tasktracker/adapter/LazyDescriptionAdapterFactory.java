@@ -0,0 +1,54 @@
+package ru.yandex.practicum.tasktracker.adapter;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import ru.yandex.practicum.tasktracker.model.Task;
+
+import java.io.IOException;
+
+// a description left on disk is not in the field Gson reads, so it is written from getDescription()
+public class LazyDescriptionAdapterFactory implements TypeAdapterFactory {
+    private static final String DESCRIPTION_PROPERTY = "description";
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!Task.class.isAssignableFrom(type.getRawType())) {
+            return null;
+        }
+        return new LazyDescriptionAdapter<>(gson.getDelegateAdapter(this, type), gson.getAdapter(JsonElement.class));
+    }
+
+    private static class LazyDescriptionAdapter<T> extends TypeAdapter<T> {
+        private final TypeAdapter<T> delegate;
+        private final TypeAdapter<JsonElement> elementAdapter;
+
+        LazyDescriptionAdapter(TypeAdapter<T> delegate, TypeAdapter<JsonElement> elementAdapter) {
+            this.delegate = delegate;
+            this.elementAdapter = elementAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter writer, T value) throws IOException {
+            if (!(value instanceof Task task) || !task.hasDescriptionLoader()) {
+                delegate.write(writer, value);
+                return;
+            }
+            JsonElement tree = delegate.toJsonTree(value);
+            String description = task.getDescription();
+            if (description != null) {
+                tree.getAsJsonObject().addProperty(DESCRIPTION_PROPERTY, description);
+            }
+            elementAdapter.write(writer, tree);
+        }
+
+        @Override
+        public T read(JsonReader reader) throws IOException {
+            return delegate.read(reader);
+        }
+    }
+}
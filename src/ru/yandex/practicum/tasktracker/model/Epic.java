@@ -1,13 +1,15 @@
 package ru.yandex.practicum.tasktracker.model;
 
+import ru.yandex.practicum.tasktracker.utils.IntSet;
+
 import java.time.LocalDateTime;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.IntConsumer;
 
 public class Epic extends Task {
-    private final Set<Integer> subtaskIds = new HashSet<>();
+    private final IntSet subtaskIds = new IntSet();
     private LocalDateTime endTime;
 
     @Override
@@ -19,11 +21,16 @@ public class Epic extends Task {
         return Collections.unmodifiableSet(subtaskIds);
     }
 
-    public void addSubtaskId(Integer subtask) {
+    // without boxing the ids, unlike getSubtaskIds
+    public void forEachSubtaskId(IntConsumer action) {
+        subtaskIds.forEachInt(action);
+    }
+
+    public void addSubtaskId(int subtask) {
         subtaskIds.add(subtask);
     }
 
-    public void removeSubtaskId(Integer subtask) {
+    public void removeSubtaskId(int subtask) {
         subtaskIds.remove(subtask);
     }
 
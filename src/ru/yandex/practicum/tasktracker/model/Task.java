@@ -4,6 +4,7 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Objects;
+import java.util.function.IntFunction;
 
 public class Task {
     public static final DateTimeFormatter FORMATTER_OF_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy-HH:mm");
@@ -14,7 +15,8 @@ public class Task {
     private String description;
     protected LocalDateTime startTime;
     protected Duration duration = Duration.ofMinutes(0);
-
+    // replaces the description for a manager that keeps descriptions on disk, called with the task id
+    private transient IntFunction<String> descriptionLoader;
 
     public String getName() {
         return name;
@@ -37,6 +39,9 @@ public class Task {
     }
 
     public String getDescription() {
+        if (descriptionLoader != null) {
+            return descriptionLoader.apply(id);
+        }
         return description;
     }
 
@@ -50,11 +55,21 @@ public class Task {
 
     public void setDescription(String description) {
         this.description = description;
+        descriptionLoader = null;
+    }
+
+    public void setDescriptionLoader(IntFunction<String> descriptionLoader) {
+        this.description = null;
+        this.descriptionLoader = descriptionLoader;
+    }
+
+    public boolean hasDescriptionLoader() {
+        return descriptionLoader != null;
     }
 
     public String toCsvRow() {
         return String.format("%d,%s,%s,%s,%s,%s,%s,%s",
-                id, getType(), name, status, description,
+                id, getType(), name, status, getDescription(),
                 startTime,
                 duration.toMinutes(),
                 getEndTime());
@@ -89,7 +104,7 @@ public class Task {
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", status=" + status +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", startTime=" + (startTime != null ? startTime.format(Task.FORMATTER_OF_DATE) : null) +
                 ", duration=" + duration.toMinutes() + "min" +
                 ", endTime=" + (getEndTime() != null ? getEndTime().format(FORMATTER_OF_DATE) : null) +
@@ -108,13 +123,26 @@ public class Task {
         return Objects.equals(name, task.name)
                 && status == task.status
                 && Objects.equals(id, task.id)
-                && Objects.equals(description, task.description)
                 && Objects.equals(startTime, task.startTime)
-                && Objects.equals(duration, task.duration);
+                && Objects.equals(duration, task.duration)
+                && hasSameDescription(task);
     }
 
+    // the description is left out, so hashing never reads a description from disk
     @Override
     public int hashCode() {
-        return Objects.hash(name, status, id, description, startTime, duration);
+        return Objects.hash(name, status, id, startTime, duration);
+    }
+
+    // tasks of one loaded snapshot share the loader, the ids are already equal; only a task whose description
+    // is on disk compared with one holding it in memory reads it
+    private boolean hasSameDescription(Task task) {
+        if (descriptionLoader == null && task.descriptionLoader == null) {
+            return Objects.equals(description, task.description);
+        }
+        if (descriptionLoader == task.descriptionLoader) {
+            return true;
+        }
+        return Objects.equals(getDescription(), task.getDescription());
     }
 }
\ No newline at end of file
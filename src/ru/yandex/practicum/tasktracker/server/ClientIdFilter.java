@@ -0,0 +1,27 @@
+package ru.yandex.practicum.tasktracker.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import ru.yandex.practicum.tasktracker.service.PartitionedHistoryManager;
+
+import java.io.IOException;
+
+// views made while handling a request go to the history of the client named in the header
+public class ClientIdFilter extends Filter {
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        PartitionedHistoryManager.setCurrentClient(exchange.getRequestHeaders().getFirst(CLIENT_ID_HEADER));
+        try {
+            chain.doFilter(exchange);
+        } finally {
+            PartitionedHistoryManager.setCurrentClient(null);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Binds the " + CLIENT_ID_HEADER + " header to the history partition of the request";
+    }
+}
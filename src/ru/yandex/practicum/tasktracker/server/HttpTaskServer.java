@@ -1,7 +1,9 @@
 package ru.yandex.practicum.tasktracker.server;
 
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import ru.yandex.practicum.tasktracker.server.handler.EpicHandler;
+import ru.yandex.practicum.tasktracker.server.handler.FreeSlotsHandler;
 import ru.yandex.practicum.tasktracker.server.handler.HistoryHandler;
 import ru.yandex.practicum.tasktracker.server.handler.SubtasksByEpicHandler;
 import ru.yandex.practicum.tasktracker.server.handler.SubtaskHandler;
@@ -11,11 +13,15 @@ import ru.yandex.practicum.tasktracker.service.TaskManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HttpTaskServer {
     private HttpServer httpServer;
     private static final int PORT = 8080;
     private final TaskManager taskManager;
+    // requests are handled in parallel, the manager and its history are thread-safe
+    private ExecutorService executor;
 
     public HttpTaskServer(TaskManager taskManager) {
         this.taskManager = taskManager;
@@ -27,18 +33,26 @@ public class HttpTaskServer {
         System.out.println("Open in your browser http://localhost:" + PORT + "/");
         httpServer = HttpServer.create();
         httpServer.bind(new InetSocketAddress(PORT), 0);
-        httpServer.createContext("/tasks/task/", new TaskHandler(taskManager));
-        httpServer.createContext("/tasks/epic/", new EpicHandler(taskManager));
-        httpServer.createContext("/tasks/subtask/", new SubtaskHandler(taskManager));
-        httpServer.createContext("/tasks/subtask/epic/", new SubtasksByEpicHandler(taskManager));
-        httpServer.createContext("/tasks/history/", new HistoryHandler(taskManager));
-        httpServer.createContext("/tasks/", new TasksHandler(taskManager));
+        createContext("/tasks/task/", new TaskHandler(taskManager));
+        createContext("/tasks/epic/", new EpicHandler(taskManager));
+        createContext("/tasks/subtask/", new SubtaskHandler(taskManager));
+        createContext("/tasks/subtask/epic/", new SubtasksByEpicHandler(taskManager));
+        createContext("/tasks/history/", new HistoryHandler(taskManager));
+        createContext("/tasks/slots/", new FreeSlotsHandler(taskManager));
+        createContext("/tasks/", new TasksHandler(taskManager));
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        httpServer.setExecutor(executor);
         httpServer.start();
     }
 
+    private void createContext(String path, HttpHandler handler) {
+        httpServer.createContext(path, handler).getFilters().add(new ClientIdFilter());
+    }
+
     public void stop() {
         System.out.println("Server stopped on port " + PORT);
         httpServer.stop(1);
+        executor.shutdown();
     }
 
 }
\ No newline at end of file
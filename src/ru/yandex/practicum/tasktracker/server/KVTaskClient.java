@@ -7,16 +7,42 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 public class KVTaskClient {
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
 
     private final String apiToken;
 
     private final String serverURL;
 
+    // one client for all requests, it keeps the connections to the server alive and reuses them
+    private final HttpClient client;
+
+    private final Duration requestTimeout;
+
     public KVTaskClient(String serverURL) throws IOException, InterruptedException {
+        this(serverURL, DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, null);
+    }
+
+    // the executor runs the client's asynchronous work, null for the client's own pool
+    public KVTaskClient(String serverURL, Duration connectTimeout, Duration requestTimeout, Executor executor)
+            throws IOException, InterruptedException {
         this.serverURL = serverURL;
+        this.requestTimeout = requestTimeout;
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout);
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        client = builder.build();
 
         URI uri = URI.create(this.serverURL + "/register");
 
@@ -24,9 +50,9 @@ public class KVTaskClient {
                 .GET()
                 .uri(uri)
                 .header("Content-Type", "application/json")
+                .timeout(requestTimeout)
                 .build();
 
-        HttpClient client = HttpClient.newHttpClient();
         HttpResponse<String> response = client.send(request,
                 HttpResponse.BodyHandlers.ofString()
         );
@@ -34,23 +60,13 @@ public class KVTaskClient {
     }
 
     public void put(String key, String json) {
-        URI uri = URI.create(this.serverURL + "/save/" + key + "?API_TOKEN=" + apiToken);
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .POST(HttpRequest.BodyPublishers.ofString(json))
-                .uri(uri)
-                .header("Content-Type", "application/json")
-                .build();
-
-        HttpClient client = HttpClient.newHttpClient();
         try {
-            HttpResponse<String> response = client.send(request,
-                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<String> response = send(saveRequest(key, json));
             if (response.statusCode() != 200) {
                 System.out.println("Failed to save data");
             }
         } catch (IOException | InterruptedException e) {
-            throw new  ManagerSaveException("Failed to save data");
+            throw new ManagerSaveException("Failed to save data", e);
         }
     }
 
@@ -61,15 +77,65 @@ public class KVTaskClient {
                 .GET()
                 .uri(uri)
                 .header("Content-Type", "application/json")
+                .timeout(requestTimeout)
                 .build();
 
-        HttpClient client = HttpClient.newHttpClient();
         try {
-            HttpResponse<String> response = client.send(request,
-                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<String> response = send(request);
             return response.body();
         } catch (IOException | InterruptedException e) {
-            throw new  ManagerSaveException("Failed to load data");
+            throw new ManagerSaveException("Failed to load data", e);
+        }
+    }
+
+    // completes once the server has answered, exceptionally with a ManagerSaveException if it could not be reached
+    public CompletableFuture<Void> putAsync(String key, String json) {
+        HttpRequest request = saveRequest(key, json);
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .exceptionallyCompose(e -> isRetryable(e)
+                        ? client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                        : CompletableFuture.failedFuture(e))
+                .handle((response, e) -> {
+                    if (e != null) {
+                        throw new ManagerSaveException("Failed to save data", unwrap(e));
+                    }
+                    if (response.statusCode() != 200) {
+                        System.out.println("Failed to save data");
+                    }
+                    return null;
+                });
+    }
+
+    private HttpRequest saveRequest(String key, String json) {
+        URI uri = URI.create(this.serverURL + "/save/" + key + "?API_TOKEN=" + apiToken);
+
+        return HttpRequest.newBuilder()
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .uri(uri)
+                .header("Content-Type", "application/json")
+                .timeout(requestTimeout)
+                .build();
+    }
+
+    // a kept-alive connection the server has closed meanwhile fails the request before it is handled,
+    // saving or loading a key is idempotent, so it is sent once more on a fresh connection
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            if (!isRetryable(e)) {
+                throw e;
+            }
+            return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
         }
     }
+
+    private static boolean isRetryable(Throwable e) {
+        Throwable cause = unwrap(e);
+        return cause instanceof IOException && !(cause instanceof HttpTimeoutException);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
 }
@@ -6,6 +6,7 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import ru.yandex.practicum.tasktracker.model.Epic;
 import ru.yandex.practicum.tasktracker.service.TaskManager;
+import ru.yandex.practicum.tasktracker.service.TaskSnapshot;
 import ru.yandex.practicum.tasktracker.utils.Managers;
 
 import java.io.IOException;
@@ -14,6 +15,7 @@ import java.nio.charset.StandardCharsets;
 
 public class EpicHandler implements HttpHandler {
     private final Gson gson = Managers.getGson();
+    private final SnapshotJsonCache allEpicsJson = new SnapshotJsonCache(gson, TaskSnapshot::getEpics);
     private final TaskManager taskManager;
 
     public EpicHandler(TaskManager taskManager) {
@@ -34,7 +36,7 @@ public class EpicHandler implements HttpHandler {
                 String query = exchange.getRequestURI().getQuery();
                 if (query == null) {
                     statusCode = 200;
-                    String jsonString = gson.toJson(taskManager.getAllEpics());
+                    String jsonString = allEpicsJson.toJson(taskManager.getSnapshot());
                     System.out.println("GET EPICS: " + jsonString);
                     response = jsonString;
                 } else {
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.tasktracker.server.handler;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import ru.yandex.practicum.tasktracker.service.TaskManager;
+import ru.yandex.practicum.tasktracker.utils.Managers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+// GET /tasks/slots/?duration=30&from=2022-01-01T09:00&to=2022-01-01T18:00&count=3, duration in minutes
+public class FreeSlotsHandler implements HttpHandler {
+    // every slot is searched for and sent in one response, so a request may not ask for more
+    public static final int MAX_SLOT_COUNT = 1000;
+    private final Gson gson = Managers.getGson();
+    private final TaskManager taskManager;
+
+    public FreeSlotsHandler(TaskManager taskManager) {
+        this.taskManager = taskManager;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        int statusCode = 400;
+        String response;
+        String method = exchange.getRequestMethod();
+        String path = String.valueOf(exchange.getRequestURI());
+
+        System.out.println("The request is processed " + path + " with the method " + method);
+
+        if (method.equals("GET")) {
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getQuery());
+            if (!parameters.containsKey("duration") || !parameters.containsKey("from")
+                    || !parameters.containsKey("to")) {
+                response = "В запросе отсутствуют необходимые параметры duration, from и to";
+            } else {
+                try {
+                    Duration duration = Duration.ofMinutes(Long.parseLong(parameters.get("duration")));
+                    LocalDateTime from = LocalDateTime.parse(parameters.get("from"));
+                    LocalDateTime to = LocalDateTime.parse(parameters.get("to"));
+                    int count = Integer.parseInt(parameters.getOrDefault("count", "1"));
+                    if (count > MAX_SLOT_COUNT) {
+                        response = "Можно запросить не больше " + MAX_SLOT_COUNT + " слотов";
+                    } else {
+                        response = gson.toJson(taskManager.findFreeSlots(duration, from, to, count));
+                        statusCode = 200;
+                    }
+                } catch (NumberFormatException | DateTimeParseException e) {
+                    response = "Неверный формат параметров";
+                } catch (IllegalArgumentException e) {
+                    response = "Длительность должна быть положительной";
+                }
+            }
+        } else {
+            response = "Некорректный запрос";
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=" + StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(statusCode, 0);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response.getBytes());
+        }
+    }
+
+    private Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            String[] pair = parameter.split("=", 2);
+            if (pair.length == 2) {
+                parameters.put(pair[0], pair[1]);
+            }
+        }
+        return parameters;
+    }
+}
@@ -3,6 +3,7 @@ package ru.yandex.practicum.tasktracker.server.handler;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import ru.yandex.practicum.tasktracker.server.ClientIdFilter;
 import ru.yandex.practicum.tasktracker.service.TaskManager;
 import ru.yandex.practicum.tasktracker.utils.Managers;
 
@@ -29,7 +30,8 @@ public class HistoryHandler implements HttpHandler {
 
         if (method.equals("GET")) {
             statusCode = 200;
-            response = gson.toJson(taskManager.getHistory());
+            String clientId = exchange.getRequestHeaders().getFirst(ClientIdFilter.CLIENT_ID_HEADER);
+            response = gson.toJson(taskManager.getHistory(clientId));
         } else {
             response = "Некорректный запрос";
         }
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.tasktracker.server.handler;
+
+import com.google.gson.Gson;
+import ru.yandex.practicum.tasktracker.service.TaskSnapshot;
+
+import java.util.function.Function;
+
+// serializes one list of a snapshot once and serves the same JSON until the manager publishes a new snapshot
+public class SnapshotJsonCache {
+    private final Gson gson;
+    private final Function<TaskSnapshot, Object> view;
+    private TaskSnapshot cachedSnapshot;
+    private String cachedJson;
+
+    public SnapshotJsonCache(Gson gson, Function<TaskSnapshot, Object> view) {
+        this.gson = gson;
+        this.view = view;
+    }
+
+    public synchronized String toJson(TaskSnapshot snapshot) {
+        if (snapshot != cachedSnapshot) {
+            cachedJson = gson.toJson(view.apply(snapshot));
+            cachedSnapshot = snapshot;
+        }
+        return cachedJson;
+    }
+}
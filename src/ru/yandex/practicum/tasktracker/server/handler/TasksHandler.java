@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import ru.yandex.practicum.tasktracker.service.TaskManager;
+import ru.yandex.practicum.tasktracker.service.TaskSnapshot;
 import ru.yandex.practicum.tasktracker.utils.Managers;
 
 import java.io.IOException;
@@ -12,6 +13,8 @@ import java.nio.charset.StandardCharsets;
 
 public class TasksHandler implements HttpHandler {
     private final Gson gson = Managers.getGson();
+    private final SnapshotJsonCache prioritizedTasksJson = new SnapshotJsonCache(gson,
+            TaskSnapshot::getPrioritizedTasks);
     private final TaskManager taskManager;
 
     public TasksHandler(TaskManager taskManager) {
@@ -29,7 +32,7 @@ public class TasksHandler implements HttpHandler {
 
         if (method.equals("GET")) {
             statusCode = 200;
-            response = gson.toJson(taskManager.getPrioritizedTasks());
+            response = prioritizedTasksJson.toJson(taskManager.getSnapshot());
         } else {
             response = "Некорректный запрос";
         }
@@ -0,0 +1,191 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Epic;
+import ru.yandex.practicum.tasktracker.model.Subtask;
+import ru.yandex.practicum.tasktracker.model.Task;
+import ru.yandex.practicum.tasktracker.model.TaskStatus;
+import ru.yandex.practicum.tasktracker.model.TaskType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+// magic, version, row count, rows, history size, history ids, CRC32C of all preceding bytes (since version 2)
+// row: type, id, status, name, description, start time, duration, then epic end time or subtask epic id
+// numbers are varints, strings are UTF-8 prefixed with length + 1 (0 for null),
+// times are minutes since the epoch in UTC with NO_TIME for null
+public final class BinarySnapshotCodec {
+    public static final int MAGIC = 0x4B42534E;
+    public static final byte VERSION = 2;
+    private static final byte UNCHECKED_VERSION = 1;
+    private static final int NO_TIME = Integer.MIN_VALUE;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    public static boolean isBinary(byte[] data) {
+        return isBinary(ByteBuffer.wrap(data));
+    }
+
+    public static boolean isBinary(ByteBuffer data) {
+        return data.remaining() >= Integer.BYTES && data.getInt(data.position()) == MAGIC;
+    }
+
+    public static byte[] encode(List<Task> tasks, List<Integer> history) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(tasks.size() * 32 + 16);
+        writeInt(out, MAGIC);
+        out.write(VERSION);
+        writeVarInt(out, tasks.size());
+        for (Task task : tasks) {
+            out.write(task.getType().ordinal());
+            writeVarInt(out, task.getId());
+            out.write(task.getStatus() == null ? STATUSES.length : task.getStatus().ordinal());
+            writeString(out, task.getName());
+            writeString(out, task.getDescription());
+            writeInt(out, toEpochMinute(task.getStartTime()));
+            writeVarLong(out, task.getDuration().toMinutes());
+            if (task instanceof Epic) {
+                writeInt(out, toEpochMinute(task.getEndTime()));
+            } else if (task instanceof Subtask subtask) {
+                writeVarInt(out, subtask.getEpicId());
+            }
+        }
+        writeVarInt(out, history.size());
+        for (Integer id : history) {
+            writeVarInt(out, id);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(out.toByteArray());
+        writeInt(out, (int) crc.getValue());
+        return out.toByteArray();
+    }
+
+    // rows are passed to the consumer in file order, the returned list is the history
+    public static List<Integer> decode(byte[] data, Consumer<Task> taskConsumer) {
+        return decode(ByteBuffer.wrap(data), taskConsumer);
+    }
+
+    public static List<Integer> decode(ByteBuffer in, Consumer<Task> taskConsumer) {
+        try {
+            int start = in.position();
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a binary snapshot");
+            }
+            byte version = in.get();
+            if (version != VERSION && version != UNCHECKED_VERSION) {
+                throw new IllegalArgumentException("Unsupported binary snapshot version " + version);
+            }
+            if (version == VERSION) {
+                int checksumStart = in.limit() - Integer.BYTES;
+                CRC32C crc = new CRC32C();
+                crc.update(in.slice(start, checksumStart - start));
+                if (checksumStart < in.position() || (int) crc.getValue() != in.getInt(checksumStart)) {
+                    throw new IllegalArgumentException("Binary snapshot checksum mismatch");
+                }
+            }
+            int rowCount = readVarInt(in);
+            for (int i = 0; i < rowCount; i++) {
+                taskConsumer.accept(readTask(in));
+            }
+            int historySize = readVarInt(in);
+            List<Integer> history = new ArrayList<>(historySize);
+            for (int i = 0; i < historySize; i++) {
+                history.add(readVarInt(in));
+            }
+            return history;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Binary snapshot is truncated", e);
+        }
+    }
+
+    private static Task readTask(ByteBuffer in) {
+        TaskType type = TYPES[in.get()];
+        Task task = switch (type) {
+            case TASK -> new Task();
+            case SUBTASK -> new Subtask();
+            case EPIC -> new Epic();
+        };
+        task.setId(readVarInt(in));
+        int status = in.get();
+        task.setStatus(status == STATUSES.length ? null : STATUSES[status]);
+        task.setName(readString(in));
+        task.setDescription(readString(in));
+        task.setStartTime(fromEpochMinute(in.getInt()));
+        task.setDuration(readVarLong(in));
+        if (task instanceof Epic epic) {
+            epic.setEndTime(fromEpochMinute(in.getInt()));
+        } else if (task instanceof Subtask subtask) {
+            subtask.setEpicId(readVarInt(in));
+        }
+        return task;
+    }
+
+    private static int toEpochMinute(LocalDateTime time) {
+        return time == null ? NO_TIME : (int) (time.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    private static LocalDateTime fromEpochMinute(int minute) {
+        return minute == NO_TIME ? null : LocalDateTime.ofEpochSecond(minute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// the last views up to a fixed capacity in preallocated slots: the order is a doubly linked list of slot
+// numbers in int arrays, an open addressing table maps an id to its slot, so recording a view allocates nothing;
+// once full the least recently viewed task is evicted
+public class BoundedHistoryManager implements HistoryManager {
+    private static final int NONE = -1;
+    // a free table cell, slots are stored shifted by one
+    private static final int EMPTY = 0;
+
+    private final int capacity;
+    private final int[] ids;
+    private final Task[] tasks;
+    private final int[] previous;
+    // doubles as the list of free slots
+    private final int[] next;
+    private final int[] table;
+    private int first = NONE;
+    private int last = NONE;
+    private int free;
+    private int size;
+    // rebuilt by getHistory only after a change, a list handed out is never modified
+    private List<Task> history = Collections.emptyList();
+
+    public BoundedHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        ids = new int[capacity];
+        tasks = new Task[capacity];
+        previous = new int[capacity];
+        next = new int[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            next[slot] = slot + 1 < capacity ? slot + 1 : NONE;
+        }
+        int tableCapacity = Integer.highestOneBit(capacity) << 2;
+        table = new int[tableCapacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void add(Task task) {
+        int id = task.getId();
+        int slot = find(id);
+        if (slot != NONE) {
+            if (slot == last && tasks[slot] == task) {
+                return;
+            }
+            unlink(slot);
+        } else {
+            if (size == capacity) {
+                evict(first);
+            }
+            slot = free;
+            free = next[slot];
+            ids[slot] = id;
+            insert(slot);
+            size++;
+        }
+        tasks[slot] = task;
+        linkLast(slot);
+        history = null;
+    }
+
+    @Override
+    public void remove(int taskId) {
+        int slot = find(taskId);
+        if (slot != NONE) {
+            evict(slot);
+            history = null;
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        if (history == null) {
+            List<Task> tasksInOrder = new ArrayList<>(size);
+            for (int slot = first; slot != NONE; slot = next[slot]) {
+                tasksInOrder.add(tasks[slot]);
+            }
+            history = Collections.unmodifiableList(tasksInOrder);
+        }
+        return history;
+    }
+
+    private void evict(int slot) {
+        unlink(slot);
+        delete(slot);
+        tasks[slot] = null;
+        next[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    private void linkLast(int slot) {
+        previous[slot] = last;
+        next[slot] = NONE;
+        if (last == NONE) {
+            first = slot;
+        } else {
+            next[last] = slot;
+        }
+        last = slot;
+    }
+
+    private void unlink(int slot) {
+        if (previous[slot] == NONE) {
+            first = next[slot];
+        } else {
+            next[previous[slot]] = next[slot];
+        }
+        if (next[slot] == NONE) {
+            last = previous[slot];
+        } else {
+            previous[next[slot]] = previous[slot];
+        }
+    }
+
+    private int find(int id) {
+        int mask = table.length - 1;
+        for (int cell = hash(id) & mask; table[cell] != EMPTY; cell = (cell + 1) & mask) {
+            if (ids[table[cell] - 1] == id) {
+                return table[cell] - 1;
+            }
+        }
+        return NONE;
+    }
+
+    private void insert(int slot) {
+        int mask = table.length - 1;
+        int cell = hash(ids[slot]) & mask;
+        while (table[cell] != EMPTY) {
+            cell = (cell + 1) & mask;
+        }
+        table[cell] = slot + 1;
+    }
+
+    // backward shift as in IntObjectMap, no tombstones pile up under constant eviction
+    private void delete(int slot) {
+        int mask = table.length - 1;
+        int gap = hash(ids[slot]) & mask;
+        while (table[gap] != slot + 1) {
+            gap = (gap + 1) & mask;
+        }
+        int cell = (gap + 1) & mask;
+        while (table[cell] != EMPTY) {
+            int home = hash(ids[table[cell] - 1]) & mask;
+            if (((cell - home) & mask) >= ((cell - gap) & mask)) {
+                table[gap] = table[cell];
+                gap = cell;
+            }
+            cell = (cell + 1) & mask;
+        }
+        table[gap] = EMPTY;
+    }
+
+    private static int hash(int id) {
+        return id ^ (id >>> 16);
+    }
+}
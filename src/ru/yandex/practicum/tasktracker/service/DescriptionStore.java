@@ -0,0 +1,51 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+// descriptions left in a mapped snapshot, decoded on access and kept in a small LRU cache
+class DescriptionStore implements IntFunction<String> {
+    private static final int NO_DESCRIPTION = -1;
+    private final ByteBuffer snapshot;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final Map<Integer, String> cache;
+
+    // spans are id, offset and length triples as reported by MappedCsvSnapshotReader
+    DescriptionStore(ByteBuffer snapshot, int[] descriptionSpans, int maxId, int cacheSize) {
+        this.snapshot = snapshot;
+        this.offsets = new int[maxId + 1];
+        this.lengths = new int[maxId + 1];
+        Arrays.fill(offsets, NO_DESCRIPTION);
+        for (int i = 0; i < descriptionSpans.length; i += 3) {
+            offsets[descriptionSpans[i]] = descriptionSpans[i + 1];
+            lengths[descriptionSpans[i]] = descriptionSpans[i + 2];
+        }
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    boolean contains(int id) {
+        return id < offsets.length && offsets[id] != NO_DESCRIPTION;
+    }
+
+    @Override
+    public synchronized String apply(int id) {
+        String description = cache.get(id);
+        if (description == null) {
+            byte[] bytes = new byte[lengths[id]];
+            snapshot.get(offsets[id], bytes);
+            description = new String(bytes, StandardCharsets.UTF_8);
+            cache.put(id, description);
+        }
+        return description;
+    }
+}
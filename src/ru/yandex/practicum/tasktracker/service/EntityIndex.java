@@ -0,0 +1,94 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Task;
+import ru.yandex.practicum.tasktracker.utils.IntObjectMap;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// every task, subtask and epic by id in one place; ids are handed out sequentially, so they index an array
+// directly, and only an id far past the array, e.g. one sent by a client, goes to an overflow map
+class EntityIndex {
+    private static final int MIN_CAPACITY = 16;
+    // ids up to this far past the array still grow it, e.g. the block of ids a restart skips
+    private static final int MAX_DENSE_GAP = 1 << 16;
+    private Task[] dense = new Task[MIN_CAPACITY];
+    private final IntObjectMap<Task> sparse = new IntObjectMap<>();
+    private int size;
+
+    Task get(int id) {
+        return isDense(id) ? dense[id] : sparse.get(id);
+    }
+
+    void put(int id, Task task) {
+        if (id >= dense.length && id - dense.length < Math.max(dense.length, MAX_DENSE_GAP)) {
+            grow(Integer.highestOneBit(id) << 1);
+        }
+        Task previous;
+        if (isDense(id)) {
+            previous = dense[id];
+            dense[id] = task;
+        } else {
+            previous = sparse.put(id, task);
+        }
+        if (previous == null) {
+            size++;
+        }
+    }
+
+    // only while the id still belongs to the entity, a typed map must not drop another type's entity
+    void remove(int id, Task task) {
+        if (get(id) != task) {
+            return;
+        }
+        if (isDense(id)) {
+            dense[id] = null;
+        } else {
+            sparse.remove(id);
+        }
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // in ascending id order
+    void forEach(Consumer<Task> action) {
+        int[] sparseIds = new int[sparse.size()];
+        int[] count = new int[1];
+        sparse.forEachKey(id -> sparseIds[count[0]++] = id);
+        Arrays.sort(sparseIds);
+        int next = 0;
+        while (next < sparseIds.length && sparseIds[next] < 0) {
+            action.accept(sparse.get(sparseIds[next++]));
+        }
+        for (Task task : dense) {
+            if (task != null) {
+                action.accept(task);
+            }
+        }
+        while (next < sparseIds.length) {
+            action.accept(sparse.get(sparseIds[next++]));
+        }
+    }
+
+    boolean isDense(int id) {
+        return id >= 0 && id < dense.length;
+    }
+
+    // moves the overflow entries the array covers now, get looks only into the array for them
+    private void grow(int capacity) {
+        dense = Arrays.copyOf(dense, capacity);
+        int[] coveredIds = new int[sparse.size()];
+        int[] count = new int[1];
+        sparse.forEachKey(id -> {
+            if (isDense(id)) {
+                coveredIds[count[0]++] = id;
+            }
+        });
+        for (int i = 0; i < count[0]; i++) {
+            dense[coveredIds[i]] = sparse.remove(coveredIds[i]);
+        }
+    }
+}
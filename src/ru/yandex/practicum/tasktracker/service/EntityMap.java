@@ -0,0 +1,38 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Task;
+import ru.yandex.practicum.tasktracker.utils.IntObjectMap;
+
+// the entities of one type, every change is mirrored into the index of all types
+class EntityMap<T extends Task> extends IntObjectMap<T> {
+    private final EntityIndex entityIndex;
+
+    EntityMap(EntityIndex entityIndex) {
+        this.entityIndex = entityIndex;
+    }
+
+    @Override
+    public T put(int key, T value) {
+        T previous = super.put(key, value);
+        if (previous != null) {
+            entityIndex.remove(key, previous);
+        }
+        entityIndex.put(key, value);
+        return previous;
+    }
+
+    @Override
+    public T remove(int key) {
+        T removed = super.remove(key);
+        if (removed != null) {
+            entityIndex.remove(key, removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        forEachKey(key -> entityIndex.remove(key, get(key)));
+        super.clear();
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Epic;
+import ru.yandex.practicum.tasktracker.model.Subtask;
+import ru.yandex.practicum.tasktracker.model.TaskStatus;
+import ru.yandex.practicum.tasktracker.utils.IntObjectMap;
+
+import java.time.LocalDateTime;
+import java.util.TreeMap;
+
+// status counters, summed duration and ordered start and end times of the subtasks of one epic, so a change
+// of one subtask updates the epic in O(log n) instead of a pass over all of its subtasks;
+// the values a subtask contributed are kept by id, since callers may change a stored subtask in place
+class EpicAggregate {
+    private final IntObjectMap<Contribution> contributions = new IntObjectMap<>();
+    private final int[] statusCounts = new int[TaskStatus.values().length];
+    private final TreeMap<LocalDateTime, Integer> startTimes = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> endTimes = new TreeMap<>();
+    private long durationMinutes;
+
+    // adds the subtask or replaces what it contributed before
+    void put(Subtask subtask) {
+        remove(subtask.getId());
+        Contribution contribution = new Contribution(subtask);
+        contributions.put(subtask.getId(), contribution);
+        statusCounts[contribution.status.ordinal()]++;
+        if (contribution.startTime != null) {
+            startTimes.merge(contribution.startTime, 1, Integer::sum);
+            endTimes.merge(contribution.endTime, 1, Integer::sum);
+            durationMinutes += contribution.durationMinutes;
+        }
+    }
+
+    void remove(int subtaskId) {
+        Contribution contribution = contributions.remove(subtaskId);
+        if (contribution == null) {
+            return;
+        }
+        statusCounts[contribution.status.ordinal()]--;
+        if (contribution.startTime != null) {
+            decrement(startTimes, contribution.startTime);
+            decrement(endTimes, contribution.endTime);
+            durationMinutes -= contribution.durationMinutes;
+        }
+    }
+
+    // without subtasks or with only new ones an epic is new, with only done ones it is done
+    void applyTo(Epic epic) {
+        int newCount = statusCounts[TaskStatus.NEW.ordinal()];
+        int doneCount = statusCounts[TaskStatus.DONE.ordinal()];
+        if (newCount == contributions.size()) {
+            epic.setStatus(TaskStatus.NEW);
+        } else if (doneCount == contributions.size()) {
+            epic.setStatus(TaskStatus.DONE);
+        } else {
+            epic.setStatus(TaskStatus.IN_PROGRESS);
+        }
+        epic.setStartTime(startTimes.isEmpty() ? null : startTimes.firstKey());
+        epic.setEndTime(endTimes.isEmpty() ? null : endTimes.lastKey());
+        epic.setDuration(durationMinutes);
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        times.computeIfPresent(time, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static class Contribution {
+        final TaskStatus status;
+        final LocalDateTime startTime;
+        final LocalDateTime endTime;
+        final long durationMinutes;
+
+        Contribution(Subtask subtask) {
+            this.status = subtask.getStatus();
+            this.startTime = subtask.getStartTime();
+            this.endTime = subtask.getEndTime();
+            this.durationMinutes = subtask.getDuration().toMinutes();
+        }
+    }
+}
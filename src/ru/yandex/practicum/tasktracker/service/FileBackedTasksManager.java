@@ -6,181 +6,886 @@ import ru.yandex.practicum.tasktracker.model.Task;
 import ru.yandex.practicum.tasktracker.model.TaskStatus;
 import ru.yandex.practicum.tasktracker.model.TaskType;
 import ru.yandex.practicum.tasktracker.service.exception.ManagerSaveException;
+import ru.yandex.practicum.tasktracker.utils.IntSet;
 import ru.yandex.practicum.tasktracker.utils.Managers;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class FileBackedTasksManager extends InMemoryTaskManager {
     private static final String CSV_FILE_HEADER = "id,type,name,status,description,startTime,duration(min)," +
             "endTime,epic";
     private static final String CSV_VALUE_SEPARATOR = ",";
+    private static final String JOURNAL_FILE_SUFFIX = ".log";
+    private static final String PENDING_JOURNAL_FILE_SUFFIX = ".log.compacting";
+    private static final String HISTORY_FILE_SUFFIX = ".history";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String ID_FILE_SUFFIX = ".ids";
+    private static final String SLOT_FILE_SUFFIX = ".slots";
+    private static final int ID_BLOCK_SIZE = 1024;
+    private static final String FIXED_WIDTH_HEADER = "#fixed-width,";
+    private static final int MIN_SLOT_WIDTH = 128;
+    private static final long HISTORY_FLUSH_INTERVAL_MILLIS = 50;
+    private static final int MAX_PENDING_VIEWS = 1000;
     private final String pathSave;
+    private final boolean journaled;
+    private final TaskJournal journal;
+    // records moved out of the journal while a compaction writes the snapshot that covers them
+    private final TaskJournal pendingJournal;
+    private final Object compactionLock = new Object();
+    // read by lookups outside the monitor
+    private volatile GroupCommitter groupCommitter;
+    // views in snapshot mode change only the history, a writer thread rewrites it after a batch of them
+    private final GroupCommitter historyCommitter;
+    private JournalCompactor compactor;
+    private volatile FsyncPolicy fsyncPolicy = FsyncPolicy.NONE;
+    private SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+    private boolean restoring;
+    private boolean snapshotDirty;
+    // the contents of the history file as last written or read, null when it is not known
+    private String savedHistory;
+    private double loadRowsPerSecond;
+    private int descriptionCacheSize;
+    // ids changed since the last save of a fixed-width snapshot and the slot width of that file, 0 if none
+    private final IntSet dirtyIds = new IntSet();
+    private int slotWidth;
 
     public FileBackedTasksManager(HistoryManager historyManager, String path) {
+        this(historyManager, path, false);
+    }
+
+    // a new manager starts an empty board, files left by an earlier one are cleared before ids are handed out
+    public FileBackedTasksManager(HistoryManager historyManager, String path, boolean journaled) {
+        this(historyManager, path, journaled, true);
+    }
+
+    protected FileBackedTasksManager(HistoryManager historyManager, String path, boolean journaled,
+                                     boolean clearFiles) {
         super(historyManager);
         this.pathSave = path;
+        this.journaled = journaled;
+        this.journal = new TaskJournal(path + JOURNAL_FILE_SUFFIX);
+        this.pendingJournal = new TaskJournal(path + PENDING_JOURNAL_FILE_SUFFIX);
+        this.historyCommitter = journaled ? null
+                : new GroupCommitter(this::flushHistory, HISTORY_FLUSH_INTERVAL_MILLIS, MAX_PENDING_VIEWS);
+        if (clearFiles) {
+            clearFiles();
+        }
+        idAllocator.reserveInBlocks(ID_BLOCK_SIZE, this::saveReservedId);
     }
 
     public static FileBackedTasksManager loadFromFile(String path) {
-        FileBackedTasksManager tasksManager = new FileBackedTasksManager(Managers.getDefaultHistory(), path);
-        try (BufferedReader reader = new BufferedReader(new FileReader(path, StandardCharsets.UTF_8))) {
-            while (reader.ready()) {
-                String taskLine = reader.readLine();
-                // removing the table header or check that there is a header and the file is not empty
-                if (taskLine.equals(CSV_FILE_HEADER)) {
-                    taskLine = reader.readLine();
-                }
-                if (taskLine.isBlank()) {
-                    String idTasksHistory = reader.readLine();
-                    if (idTasksHistory != null) {
-                        tasksManager.recoverHistory(historyFromString(idTasksHistory));
+        return loadFromFile(path, false);
+    }
+
+    public static FileBackedTasksManager loadFromFile(String path, boolean journaled) {
+        return loadFromFile(path, journaled, 0);
+    }
+
+    // with a positive cache size the descriptions of a CSV snapshot stay in the mapped file until first access,
+    // at most descriptionCacheSize of them are kept decoded; other formats are loaded eagerly
+    public static FileBackedTasksManager loadFromFile(String path, boolean journaled, int descriptionCacheSize) {
+        return loadFromFile(path, journaled, descriptionCacheSize, true);
+    }
+
+    private static FileBackedTasksManager loadFromFile(String path, boolean journaled, int descriptionCacheSize,
+                                                       boolean compact) {
+        FileBackedTasksManager tasksManager = new FileBackedTasksManager(Managers.getDefaultHistory(), path,
+                journaled, false);
+        tasksManager.descriptionCacheSize = descriptionCacheSize;
+        tasksManager.restoring = true;
+        tasksManager.loadReservedId();
+        tasksManager.redoSlotWrites();
+        if (Files.exists(Path.of(path)) || !tasksManager.journal.exists()) {
+            tasksManager.loadSnapshot();
+        }
+        boolean hasHistoryFile = tasksManager.loadHistoryFile();
+        tasksManager.restoreFromJournal(tasksManager.pendingJournal);
+        tasksManager.restoreFromJournal(tasksManager.journal);
+        tasksManager.linkRestoredSubtasks();
+        tasksManager.restoring = false;
+        tasksManager.resetEpicAggregates();
+        // finish an interrupted compaction and fold files written in the other persistence mode
+        if (compact && (tasksManager.pendingJournal.exists() || journaled && hasHistoryFile
+                || !journaled && tasksManager.journal.exists())) {
+            tasksManager.compact();
+        }
+        return tasksManager;
+    }
+
+    // mutations only buffer their changes, a writer thread persists them at most every flushIntervalMillis
+    public synchronized void enableGroupCommit(long flushIntervalMillis, int maxPendingChanges,
+                                               FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+        if (fsyncPolicy != FsyncPolicy.PER_MUTATION) {
+            groupCommitter = new GroupCommitter(this::flushChanges, flushIntervalMillis, maxPendingChanges);
+        }
+    }
+
+    // the journal is compacted in the background once it passes either threshold, until close()
+    public synchronized void enableCompaction(long maxJournalBytes, int maxJournalRecords, long checkPeriodMillis) {
+        if (compactor != null) {
+            compactor.stop();
+        }
+        compactor = new JournalCompactor(this, maxJournalBytes, maxJournalRecords, checkPeriodMillis);
+        compactor.start();
+    }
+
+    // loadFromFile keeps the format of the file it read, the new format is used from the next save
+    public synchronized void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        if (this.snapshotFormat != snapshotFormat) {
+            slotWidth = 0;
+        }
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    // the source files are read as they are, a journal beside them is replayed but not folded into the snapshot;
+    // a fixed-width target keeps its history in its own history file, other formats hold it in the snapshot
+    public static void convertSnapshot(String sourcePath, String targetPath, SnapshotFormat targetFormat) {
+        FileBackedTasksManager tasksManager = loadFromFile(sourcePath, false, 0, false);
+        try {
+            Files.deleteIfExists(Path.of(targetPath + SLOT_FILE_SUFFIX));
+            tasksManager.writeFile(targetPath, tasksManager.encodeSnapshot(targetFormat));
+            if (targetFormat == SnapshotFormat.FIXED_WIDTH) {
+                tasksManager.writeFile(targetPath + HISTORY_FILE_SUFFIX,
+                        tasksManager.historyToString().getBytes(StandardCharsets.UTF_8));
+            } else {
+                Files.deleteIfExists(Path.of(targetPath + HISTORY_FILE_SUFFIX));
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to convert " + sourcePath, e);
+        } finally {
+            tasksManager.close();
+        }
+    }
+
+    public CompletableFuture<Void> flush() {
+        CompletableFuture<Void> changesFlushed = groupCommitter == null
+                ? CompletableFuture.completedFuture(null)
+                : groupCommitter.flush();
+        return historyCommitter == null
+                ? changesFlushed
+                : CompletableFuture.allOf(changesFlushed, historyCommitter.flush());
+    }
+
+    public void close() {
+        JournalCompactor runningCompactor;
+        synchronized (this) {
+            runningCompactor = compactor;
+            compactor = null;
+        }
+        // stopped outside the monitor, a running compaction takes it before it can finish
+        if (runningCompactor != null) {
+            runningCompactor.stop();
+        }
+        if (groupCommitter != null) {
+            groupCommitter.close();
+        }
+        if (historyCommitter != null) {
+            historyCommitter.close();
+        }
+        journal.close();
+    }
+
+    public int getJournalRecordCount() {
+        return journal.getRecordCount();
+    }
+
+    public long getJournalSize() {
+        return journal.size();
+    }
+
+    public void compact() {
+        synchronized (compactionLock) {
+            byte[] snapshot;
+            byte[] history = null;
+            synchronized (this) {
+                // lookups journal their views under the read lock, none falls between the history and the transfer
+                lock.writeLock().lock();
+                try {
+                    snapshot = encodeSnapshot(snapshotFormat);
+                    if (snapshotFormat == SnapshotFormat.FIXED_WIDTH) {
+                        history = historyToString().getBytes(StandardCharsets.UTF_8);
                     }
-                    break;
+                    journal.transferTo(pendingJournal);
+                    savedHistory = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            writeSnapshot(snapshot);
+            if (history == null) {
+                deleteHistoryFile();
+            } else {
+                writeFile(pathSave + HISTORY_FILE_SUFFIX, history);
+            }
+            pendingJournal.delete();
+        }
+    }
+
+    // the failure of the last background compaction, null if it succeeded or none is running
+    public synchronized ManagerSaveException getCompactionFailure() {
+        return compactor == null ? null : compactor.getLastFailure();
+    }
+
+    public double getLoadRowsPerSecond() {
+        return loadRowsPerSecond;
+    }
+
+    private void loadSnapshot() {
+        long startNanos = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(Path.of(pathSave), StandardOpenOption.READ)) {
+            MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            List<Task> loadedTasks;
+            List<Integer> history;
+            if (BinarySnapshotCodec.isBinary(snapshot)) {
+                snapshotFormat = SnapshotFormat.BINARY;
+                loadedTasks = new ArrayList<>();
+                try {
+                    history = BinarySnapshotCodec.decode(snapshot, loadedTasks::add);
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    throw new ManagerSaveException("Damaged binary snapshot " + pathSave, e);
+                }
+            } else if (isFixedWidth(snapshot)) {
+                snapshotFormat = SnapshotFormat.FIXED_WIDTH;
+                MappedCsvSnapshotReader reader = new MappedCsvSnapshotReader(snapshot);
+                loadedTasks = reader.readChecksummedRows();
+                history = List.of();
+                // slots torn by an interrupted write were restored from the slot file, these are damaged otherwise
+                if (reader.getTornRowCount() > 0) {
+                    throw new ManagerSaveException(reader.getTornRowCount() + " damaged rows in " + pathSave);
+                }
+            } else {
+                MappedCsvSnapshotReader reader = new MappedCsvSnapshotReader(snapshot);
+                reader.setLazyDescriptions(descriptionCacheSize > 0);
+                loadedTasks = reader.read();
+                history = reader.getHistory();
+                if (descriptionCacheSize > 0) {
+                    attachDescriptionStore(loadedTasks, snapshot, reader.getDescriptionSpans());
                 }
-                tasksManager.recoverTask(tasksManager.fromString(taskLine));
             }
-            return tasksManager;
+            recoverLoadedTasks(loadedTasks);
+            recoverHistory(history);
         } catch (IOException e) {
             throw new ManagerSaveException("File to download not found", e);
         }
+        long elapsedNanos = Math.max(System.nanoTime() - startNanos, 1);
+        int rowCount = tasks.size() + subtasks.size() + epics.size();
+        loadRowsPerSecond = rowCount * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    // saves replace the snapshot by a rename, so the mapping keeps the loaded file alive and unchanged
+    private void attachDescriptionStore(List<Task> loadedTasks, ByteBuffer snapshot, int[] descriptionSpans) {
+        int maxId = loadedTasks.stream().mapToInt(Task::getId).max().orElse(0);
+        DescriptionStore descriptionStore = new DescriptionStore(snapshot, descriptionSpans, maxId,
+                descriptionCacheSize);
+        for (Task task : loadedTasks) {
+            if (descriptionStore.contains(task.getId())) {
+                task.setDescriptionLoader(descriptionStore);
+            }
+        }
+    }
+
+    private boolean isFixedWidth(ByteBuffer snapshot) {
+        byte[] prefix = FIXED_WIDTH_HEADER.getBytes(StandardCharsets.UTF_8);
+        if (snapshot.remaining() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (snapshot.get(i) != prefix[i]) {
+                return false;
+            }
+        }
+        int width = 0;
+        for (int i = prefix.length; Character.isDigit(snapshot.get(i)); i++) {
+            width = width * 10 + snapshot.get(i) - '0';
+        }
+        slotWidth = width;
+        return true;
+    }
+
+    // merge phase of the load: links subtasks to epics and bulk-builds the prioritized index; the epics are
+    // registered first, the rows of the parsed chunks do not have to come before their subtasks
+    private void recoverLoadedTasks(List<Task> loadedTasks) {
+        for (Task task : loadedTasks) {
+            if (task.getType() == TaskType.EPIC) {
+                epics.put(task.getId(), (Epic) task);
+            }
+        }
+        List<Task> scheduledTasks = new ArrayList<>(loadedTasks.size());
+        for (Task task : loadedTasks) {
+            idAllocator.advanceTo(task.getId());
+            switch (task.getType()) {
+                case TASK -> tasks.put(task.getId(), task);
+                case SUBTASK -> {
+                    Subtask subtask = (Subtask) task;
+                    Epic epic = epics.get(subtask.getEpicId());
+                    if (epic == null) {
+                        throw new ManagerSaveException("Subtask " + subtask.getId() + " refers to missing epic "
+                                + subtask.getEpicId());
+                    }
+                    subtasks.put(subtask.getId(), subtask);
+                    epic.addSubtaskId(subtask.getId());
+                }
+                case EPIC -> {
+                    // registered above
+                }
+            }
+            if (task.getType() != TaskType.EPIC) {
+                scheduledTasks.add(task);
+            }
+        }
+        Task[] sortedTasks = scheduledTasks.toArray(new Task[0]);
+        Arrays.parallelSort(sortedTasks, PRIORITY_ORDER);
+        rebuildPrioritizedTasks(Arrays.asList(sortedTasks));
     }
 
     @Override
-    public void deleteAllTasks() {
+    public synchronized void deleteAllTasks() {
+        markDirty(tasks.keySet());
         super.deleteAllTasks();
-        save();
+        persist(JournalOperation.CLEAR, TaskType.TASK);
     }
 
     @Override
-    public void deleteAllSubtasks() {
+    public synchronized void deleteAllSubtasks() {
+        markDirty(subtasks.keySet());
+        markDirty(epics.keySet());
         super.deleteAllSubtasks();
-        save();
+        persist(JournalOperation.CLEAR, TaskType.SUBTASK);
     }
 
     @Override
-    public void deleteAllEpics() {
+    public synchronized void deleteAllEpics() {
+        markDirty(epics.keySet());
+        markDirty(subtasks.keySet());
         super.deleteAllEpics();
-        save();
+        persist(JournalOperation.CLEAR, TaskType.EPIC);
     }
 
     @Override
     public Task getTaskById(int taskId) {
-        Task task = super.getTaskById(taskId);
-        save();
-        return task;
+        return view(() -> super.getTaskById(taskId));
     }
 
     @Override
     public Subtask getSubtaskById(int subtaskId) {
-        Subtask subtask = super.getSubtaskById(subtaskId);
-        save();
-        return subtask;
+        return view(() -> super.getSubtaskById(subtaskId));
     }
 
     @Override
     public Epic getEpicById(int epicId) {
-        Epic epic = super.getEpicById(epicId);
-        save();
-        return epic;
+        return view(() -> super.getEpicById(epicId));
+    }
+
+    // lookups do not take the monitor: in journal mode the view is appended under the shared read lock, so
+    // concurrent readers only meet on the journal; otherwise they only mark the history for the writer thread
+    private <T extends Task> T view(Supplier<T> lookup) {
+        lock.readLock().lock();
+        try {
+            T task = lookup.get();
+            if (task != null) {
+                if (journaled) {
+                    persist(JournalOperation.VIEW, task.getId());
+                } else {
+                    historyCommitter.markDirty();
+                }
+            }
+            return task;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
-    public void addTask(Task task) {
+    public synchronized void addTask(Task task) {
         super.addTask(task);
-        save();
+        markDirty(task.getId());
+        persist(JournalOperation.PUT, task.toCsvRow());
     }
 
     @Override
-    public void addSubtask(Subtask subtask) {
+    public synchronized void addSubtask(Subtask subtask) {
         super.addSubtask(subtask);
-        save();
+        if (subtasks.containsKey(subtask.getId())) {
+            markDirty(subtask.getId());
+            persist(JournalOperation.PUT, subtask.toCsvRow());
+        }
     }
 
     @Override
-    public void addEpic(Epic epic) {
+    public synchronized void addEpic(Epic epic) {
         super.addEpic(epic);
-        save();
+        markDirty(epic.getId());
+        persist(JournalOperation.PUT, epic.toCsvRow());
     }
 
     @Override
-    public void updateTask(Task task) {
+    public synchronized void updateTask(Task task) {
         super.updateTask(task);
-        save();
+        markDirty(task.getId());
+        persist(JournalOperation.PUT, task.toCsvRow());
     }
 
     @Override
-    public void updateEpic(Epic epic) {
+    public synchronized void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        markDirty(epic.getId());
+        persist(JournalOperation.PUT, epic.toCsvRow());
     }
 
     @Override
-    public void updateSubtask(Subtask subtask) {
+    public synchronized void updateSubtask(Subtask subtask) {
         super.updateSubtask(subtask);
-        save();
+        markDirty(subtask.getId());
+        persist(JournalOperation.PUT, subtask.toCsvRow());
+    }
+
+    // one journal record per changed entity, but a single flush for the whole batch; the epics go first, as with
+    // addEpic and addSubtask, so a replay never meets a subtask before its epic
+    @Override
+    public synchronized List<Task> autoSchedule(Integer epicId, LocalDateTime from, LocalDateTime to) {
+        List<Task> scheduledTasks = super.autoSchedule(epicId, from, to);
+        List<Task> changedTasks = new ArrayList<>(scheduledTasks.size());
+        scheduledTasks.stream()
+                .filter(task -> task instanceof Subtask)
+                .map(task -> ((Subtask) task).getEpicId())
+                .distinct()
+                .forEach(id -> changedTasks.add(epics.get(id)));
+        changedTasks.addAll(scheduledTasks);
+        changedTasks.forEach(task -> markDirty(task.getId()));
+        persistAll(JournalOperation.PUT, changedTasks.stream().map(Task::toCsvRow).toList());
+        return scheduledTasks;
     }
 
     @Override
-    public void deleteTaskById(int taskId) {
+    public synchronized void deleteTaskById(int taskId) {
         super.deleteTaskById(taskId);
-        save();
+        markDirty(taskId);
+        persist(JournalOperation.DELETE, taskId);
     }
 
     @Override
-    public void deleteSubtaskById(int subtaskId) {
+    public synchronized void deleteSubtaskById(int subtaskId) {
         super.deleteSubtaskById(subtaskId);
-        save();
+        markDirty(subtaskId);
+        persist(JournalOperation.DELETE, subtaskId);
     }
 
     @Override
-    public void deleteEpicById(int epicId) {
+    public synchronized void deleteEpicById(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic != null) {
+            markDirty(epic.getSubtaskIds());
+        }
+        markDirty(epicId);
         super.deleteEpicById(epicId);
-        save();
+        persist(JournalOperation.DELETE, epicId);
     }
 
-    protected Task searchTask(Integer task) {
-        if (tasks.containsKey(task)) {
-            return tasks.get(task);
-        } else if (subtasks.containsKey(task)) {
-            return subtasks.get(task);
-        } else {
-            return epics.get(task);
-        }
+    protected Task searchTask(int id) {
+        return entities.get(id);
     }
 
     protected void save() {
-        try (Writer writer = new FileWriter(pathSave, StandardCharsets.UTF_8)) {
-            writer.write(CSV_FILE_HEADER + "\n");
-            for (int i = 1; i <= generatorId; i++) {
-                Task task = tasks.get(i);
-                Epic epic = epics.get(i);
-                Subtask subtask = subtasks.get(i);
-                if (task != null) {
-                    writer.write(task.toCsvRow() + "\n");
-                } else if (epic != null) {
-                    writer.write(epic.toCsvRow() + "\n");
-                } else if (subtask != null) {
-                    writer.write(subtask.toCsvRow() + "\n");
-                }
+        if (snapshotFormat == SnapshotFormat.FIXED_WIDTH) {
+            saveDirtyRows();
+            saveHistory();
+            return;
+        }
+        writeSnapshot(encodeSnapshot(snapshotFormat));
+        // the snapshot carries the current history, so the history file is stale now
+        deleteHistoryFile();
+    }
+
+    // rewrites only the slots of changed ids in place, the whole file only when a row outgrows its slot
+    private void saveDirtyRows() {
+        Map<Integer, byte[]> dirtyRows = new HashMap<>();
+        boolean fitsSlots = slotWidth > 0 && Files.exists(Path.of(pathSave));
+        for (Integer id : dirtyIds) {
+            Task task = searchTask(id);
+            byte[] row = task == null ? new byte[0] : task.toCsvRow().getBytes(StandardCharsets.UTF_8);
+            fitsSlots &= row.length + RecordChecksum.LENGTH < slotWidth;
+            dirtyRows.put(id, row);
+        }
+        dirtyIds.clear();
+        if (!fitsSlots) {
+            writeSnapshot(encodeSnapshot(SnapshotFormat.FIXED_WIDTH));
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(pathSave), StandardOpenOption.WRITE)) {
+            // fill the gap up to new ids with free slots, a sparse hole would read back as one long line
+            Map<Long, byte[]> slots = new TreeMap<>();
+            int maxId = dirtyRows.keySet().stream().max(Integer::compare).orElse(0);
+            for (long slot = channel.size() / slotWidth; slot < maxId; slot++) {
+                slots.put(slot * slotWidth, toSlot(new byte[0], slotWidth));
+            }
+            for (Map.Entry<Integer, byte[]> row : dirtyRows.entrySet()) {
+                slots.put((long) row.getKey() * slotWidth, toSlot(row.getValue(), slotWidth));
+            }
+            // the slots are synced to the slot file before they are overwritten, a load rewrites them from it,
+            // so a crash in between cannot tear them
+            writeFile(pathSave + SLOT_FILE_SUFFIX, encodeSlots(slots));
+            for (Map.Entry<Long, byte[]> slot : slots.entrySet()) {
+                channel.write(ByteBuffer.wrap(slot.getValue()), slot.getKey());
+            }
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                channel.force(false);
             }
-            writer.write("\n" + historyToString(historyManager));
         } catch (IOException e) {
             throw new ManagerSaveException();
         }
     }
 
+    private byte[] encodeFixedWidth() {
+        List<Task> snapshotTasks = snapshotTasks();
+        List<byte[]> rows = new ArrayList<>(snapshotTasks.size());
+        int width = Math.max(MIN_SLOT_WIDTH, slotWidth);
+        for (Task task : snapshotTasks) {
+            byte[] row = task.toCsvRow().getBytes(StandardCharsets.UTF_8);
+            while (row.length + RecordChecksum.LENGTH >= width) {
+                width *= 2;
+            }
+            rows.add(row);
+        }
+        byte[] header = (FIXED_WIDTH_HEADER + width).getBytes(StandardCharsets.UTF_8);
+        int maxId = snapshotTasks.isEmpty() ? 0 : snapshotTasks.get(snapshotTasks.size() - 1).getId();
+        byte[] snapshot = new byte[(maxId + 1) * width];
+        System.arraycopy(toSlot(header, width), 0, snapshot, 0, width);
+        for (int i = 1; i <= maxId; i++) {
+            System.arraycopy(toSlot(new byte[0], width), 0, snapshot, i * width, width);
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            byte[] slot = toSlot(rows.get(i), width);
+            System.arraycopy(slot, 0, snapshot, snapshotTasks.get(i).getId() * width, width);
+        }
+        slotWidth = width;
+        return snapshot;
+    }
+
+    // the slot width, then every slot after its offset in the snapshot
+    private byte[] encodeSlots(Map<Long, byte[]> slots) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + slots.size() * (Long.BYTES + slotWidth));
+        buffer.putInt(slotWidth);
+        slots.forEach((offset, slot) -> buffer.putLong(offset).put(slot));
+        return buffer.array();
+    }
+
+    // the slot file holds the last slots rewritten in place, writing them again is harmless if they were not torn
+    private void redoSlotWrites() {
+        Path slotPath = Path.of(pathSave + SLOT_FILE_SUFFIX);
+        if (!Files.exists(slotPath) || !Files.exists(Path.of(pathSave))) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(pathSave), StandardOpenOption.WRITE)) {
+            ByteBuffer slots = ByteBuffer.wrap(Files.readAllBytes(slotPath));
+            int width = slots.getInt();
+            while (slots.hasRemaining()) {
+                long offset = slots.getLong();
+                channel.write(slots.slice(slots.position(), width), offset);
+                slots.position(slots.position() + width);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to restore slots from " + slotPath, e);
+        }
+    }
+
+    // a slot file left from in-place writes must not be applied to the replaced snapshot
+    private void writeSnapshot(byte[] snapshot) {
+        try {
+            Files.deleteIfExists(Path.of(pathSave + SLOT_FILE_SUFFIX));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to delete slot file", e);
+        }
+        writeFile(pathSave, snapshot);
+    }
+
+    // the row padded with spaces, its checksum and a line feed
+    private static byte[] toSlot(byte[] row, int width) {
+        byte[] slot = new byte[width - 1];
+        Arrays.fill(slot, (byte) ' ');
+        System.arraycopy(row, 0, slot, 0, row.length);
+        RecordChecksum.fill(slot);
+        slot = Arrays.copyOf(slot, width);
+        slot[width - 1] = '\n';
+        return slot;
+    }
+
+    private void markDirty(Integer id) {
+        if (!journaled && !restoring && snapshotFormat == SnapshotFormat.FIXED_WIDTH) {
+            dirtyIds.add(id);
+        }
+    }
+
+    private void markDirty(Collection<Integer> ids) {
+        ids.forEach(this::markDirty);
+    }
+
+    // written right away, even with group commit, since the ids are handed out before the entities are saved
+    protected void saveReservedId(int reservedId) {
+        writeFile(pathSave + ID_FILE_SUFFIX, String.valueOf(reservedId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // otherwise a later load would replay the old snapshot and journal among records that reuse their ids
+    private void clearFiles() {
+        writeSnapshot(new byte[0]);
+        journal.delete();
+        pendingJournal.delete();
+        deleteHistoryFile();
+        try {
+            Files.deleteIfExists(Path.of(pathSave + ID_FILE_SUFFIX));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to delete id file", e);
+        }
+    }
+
+    private void loadReservedId() {
+        Path idPath = Path.of(pathSave + ID_FILE_SUFFIX);
+        if (!Files.exists(idPath)) {
+            return;
+        }
+        try {
+            idAllocator.restoreReservation(Integer.parseInt(Files.readString(idPath, StandardCharsets.UTF_8).trim()));
+        } catch (IOException e) {
+            throw new ManagerSaveException("File to download not found", e);
+        }
+    }
+
+    // most mutations of a fixed-width snapshot leave the history as it is, then the file is not rewritten
+    protected void saveHistory() {
+        String history = historyToString();
+        if (history.equals(savedHistory)) {
+            return;
+        }
+        writeFile(pathSave + HISTORY_FILE_SUFFIX, history.getBytes(StandardCharsets.UTF_8));
+        savedHistory = history;
+    }
+
+    // writes a synced temp file and renames it over the target, so a crash leaves either the old or the new file;
+    // the syncs do not depend on the fsync policy, without them the rename could land before the data
+    private void writeFile(String path, byte[] content) {
+        Path targetPath = Path.of(path);
+        Path tempPath = Path.of(path + TEMP_FILE_SUFFIX);
+        try {
+            try (FileOutputStream output = new FileOutputStream(tempPath.toFile())) {
+                output.write(content);
+                output.getChannel().force(false);
+            }
+            Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(targetPath.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to write " + path, e);
+        }
+    }
+
+    // makes the rename durable, not every platform can open a directory for this
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the rename is still atomic, only its durability is left to the OS
+        }
+    }
+
+    private void deleteHistoryFile() {
+        savedHistory = null;
+        try {
+            Files.deleteIfExists(Path.of(pathSave + HISTORY_FILE_SUFFIX));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to delete history file", e);
+        }
+    }
+
+    private boolean loadHistoryFile() {
+        Path historyPath = Path.of(pathSave + HISTORY_FILE_SUFFIX);
+        if (!Files.exists(historyPath)) {
+            return false;
+        }
+        try {
+            String history = Files.readString(historyPath, StandardCharsets.UTF_8);
+            savedHistory = history;
+            getHistory().forEach(task -> historyManager.remove(task.getId()));
+            if (!history.isBlank()) {
+                recoverHistory(historyFromString(history));
+            }
+            return true;
+        } catch (IOException e) {
+            throw new ManagerSaveException("File to download not found", e);
+        }
+    }
+
+    private byte[] encodeSnapshot(SnapshotFormat format) {
+        if (format == SnapshotFormat.FIXED_WIDTH) {
+            return encodeFixedWidth();
+        }
+        if (format == SnapshotFormat.BINARY) {
+            return BinarySnapshotCodec.encode(snapshotTasks(), getHistory().stream().map(Task::getId).toList());
+        }
+        StringBuilder snapshot = new StringBuilder(CSV_FILE_HEADER + "\n");
+        for (Task task : snapshotTasks()) {
+            snapshot.append(task.toCsvRow()).append("\n");
+        }
+        snapshot.append("\n").append(historyToString());
+        return snapshot.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<Task> snapshotTasks() {
+        List<Task> snapshotTasks = new ArrayList<>(entities.size());
+        entities.forEach(snapshotTasks::add);
+        return snapshotTasks;
+    }
+
+    private void persist(JournalOperation operation, Object value) {
+        persistAll(operation, List.of(value));
+    }
+
+    private void persistAll(JournalOperation operation, Collection<?> values) {
+        if (restoring || values.isEmpty()) {
+            return;
+        }
+        if (journaled) {
+            values.forEach(value -> journal.append(operation + CSV_VALUE_SEPARATOR + value));
+        } else {
+            snapshotDirty = true;
+        }
+        if (groupCommitter != null) {
+            groupCommitter.markDirty();
+        } else if (journaled) {
+            journal.flush(fsyncPolicy == FsyncPolicy.PER_MUTATION);
+        } else {
+            saveDirty();
+        }
+    }
+
+    private void flushChanges() {
+        if (journaled) {
+            journal.flush(fsyncPolicy == FsyncPolicy.PER_BATCH);
+        } else {
+            synchronized (this) {
+                saveDirty();
+            }
+        }
+    }
+
+    private void saveDirty() {
+        if (snapshotDirty) {
+            save();
+        }
+        snapshotDirty = false;
+    }
+
+    // a snapshot saved meanwhile may already hold the history, saveHistory then skips an unchanged file
+    private void flushHistory() {
+        synchronized (this) {
+            saveHistory();
+        }
+    }
+
+    private void restoreFromJournal(TaskJournal journal) {
+        invalidateSnapshot();
+        for (String record : journal.readRecords()) {
+            String[] operationAndValue = record.split(CSV_VALUE_SEPARATOR, 2);
+            String value = operationAndValue[1];
+            switch (JournalOperation.valueOf(operationAndValue[0])) {
+                case PUT -> restorePut(fromString(value));
+                case DELETE -> restoreDelete(Integer.parseInt(value));
+                case CLEAR -> restoreClear(TaskType.valueOf(value));
+                case VIEW -> restoreView(Integer.parseInt(value));
+            }
+        }
+        // history may still hold instances that were replaced by later PUT records
+        recoverHistory(getHistory().stream().map(Task::getId).toList());
+    }
+
+    private void restorePut(Task task) {
+        Task previous = searchTask(task.getId());
+        unschedule(previous);
+        if (previous instanceof Epic previousEpic && task instanceof Epic epic) {
+            previousEpic.getSubtaskIds().forEach(epic::addSubtaskId);
+        }
+        recoverTask(task);
+        // a later DELETE of the epic removes the subtask with it; a subtask replayed before its epic is linked
+        // by linkRestoredSubtasks
+        if (task instanceof Subtask subtask && epics.containsKey(subtask.getEpicId())) {
+            epics.get(subtask.getEpicId()).addSubtaskId(subtask.getId());
+        }
+    }
+
+    // a pending journal may be replayed over a snapshot that already lacks an epic its records put and delete
+    private void linkRestoredSubtasks() {
+        for (Subtask subtask : new ArrayList<>(subtasks.values())) {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.addSubtaskId(subtask.getId());
+            } else {
+                dropSubtask(subtask.getId());
+            }
+        }
+    }
+
+    private void dropSubtask(int subtaskId) {
+        invalidateSnapshot();
+        unschedule(subtasks.remove(subtaskId));
+        removeFromHistory(subtaskId);
+    }
+
+    private void restoreDelete(int id) {
+        if (tasks.containsKey(id)) {
+            super.deleteTaskById(id);
+        } else if (subtasks.containsKey(id)) {
+            if (epics.containsKey(subtasks.get(id).getEpicId())) {
+                super.deleteSubtaskById(id);
+            } else {
+                dropSubtask(id);
+            }
+        } else if (epics.containsKey(id)) {
+            super.deleteEpicById(id);
+        }
+    }
+
+    // a journal replayed after an interrupted compaction may view a task the rewritten snapshot no longer has
+    private void restoreView(int id) {
+        Task viewedTask = searchTask(id);
+        if (viewedTask != null) {
+            historyManager.add(viewedTask);
+        }
+    }
+
+    private void restoreClear(TaskType type) {
+        switch (type) {
+            case TASK -> super.deleteAllTasks();
+            case SUBTASK -> super.deleteAllSubtasks();
+            case EPIC -> super.deleteAllEpics();
+        }
+    }
+
     private void recoverHistory(List<Integer> idTasksHistory) {
         for (Integer task : idTasksHistory) {
-            historyManager.add(searchTask(task));
+            Task viewedTask = searchTask(task);
+            if (viewedTask != null) {
+                historyManager.add(viewedTask);
+            }
         }
     }
 
@@ -188,21 +893,21 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
         switch (task.getType()) {
             case TASK -> {
                 tasks.put(task.getId(), task);
-                prioritizedTasks.add(task);
+                schedule(task);
             }
             case SUBTASK -> {
                 subtasks.put(task.getId(), (Subtask) task);
-                prioritizedTasks.add(task);
+                schedule(task);
             }
             case EPIC -> epics.put(task.getId(), (Epic) task);
         }
-        if (task.getId() > generatorId) {
-            generatorId = task.getId();
-        }
+        idAllocator.advanceTo(task.getId());
     }
 
-    private static String historyToString(HistoryManager manager) {
-        return manager.getHistory().stream()
+    // saves run after the write lock is released while lookups keep recording views, so the history is
+    // read through the wrapper that guards a history manager which is not thread-safe
+    private String historyToString() {
+        return getHistory().stream()
                 .map(task -> String.valueOf(task.getId()))
                 .collect(Collectors.joining(CSV_VALUE_SEPARATOR));
     }
@@ -242,10 +947,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
                 subtask.setDescription(descriptionTask);
                 subtask.setStartTime(startTime);
                 subtask.setDuration(duration);
-                int epicId = Integer.parseInt(arrayDataTask[8]);
-                subtask.setEpicId(epicId);
-                Epic epic = epics.get(epicId);
-                epic.addSubtaskId(subtask.getId());
+                subtask.setEpicId(Integer.parseInt(arrayDataTask[8]));
                 task = subtask;
             }
             case EPIC -> {
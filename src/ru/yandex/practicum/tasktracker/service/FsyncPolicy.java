@@ -0,0 +1,6 @@
+package ru.yandex.practicum.tasktracker.service;
+
+// when journal records and slots rewritten in place are synced; files replaced by a rename are always synced
+public enum FsyncPolicy {
+    NONE, PER_BATCH, PER_MUTATION
+}
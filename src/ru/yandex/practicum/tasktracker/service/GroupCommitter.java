@@ -0,0 +1,78 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class GroupCommitter {
+    private final Runnable flushAction;
+    private final long flushIntervalMillis;
+    private final int maxPendingChanges;
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "group-committer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int pendingChanges;
+    private boolean flushScheduled;
+    private CompletableFuture<Void> pendingFlush = new CompletableFuture<>();
+    // completes when the flush that last took the pending changes has written them
+    private CompletableFuture<Void> lastFlush = CompletableFuture.completedFuture(null);
+
+    public GroupCommitter(Runnable flushAction, long flushIntervalMillis, int maxPendingChanges) {
+        this.flushAction = flushAction;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPendingChanges = maxPendingChanges;
+        // close() flushes on the calling thread, so delayed flushes are not waited for
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public synchronized CompletableFuture<Void> markDirty() {
+        pendingChanges++;
+        if (pendingChanges >= maxPendingChanges) {
+            executor.execute(this::flushPending);
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(this::flushPending, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return pendingFlush;
+    }
+
+    public synchronized CompletableFuture<Void> flush() {
+        if (pendingChanges == 0) {
+            return lastFlush;
+        }
+        executor.execute(this::flushPending);
+        return pendingFlush;
+    }
+
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushPending();
+    }
+
+    private void flushPending() {
+        CompletableFuture<Void> flushed;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pendingChanges == 0) {
+                return;
+            }
+            pendingChanges = 0;
+            flushed = pendingFlush;
+            lastFlush = flushed;
+            pendingFlush = new CompletableFuture<>();
+        }
+        try {
+            flushAction.run();
+            flushed.complete(null);
+        } catch (RuntimeException e) {
+            flushed.completeExceptionally(e);
+        }
+    }
+}
@@ -8,4 +8,14 @@ public interface HistoryManager {
     void add(Task task);
     void remove(int taskId);
     List<Task> getHistory();
+
+    // the views of one client, a manager without partitions has only the shared history
+    default List<Task> getHistory(String clientId) {
+        return getHistory();
+    }
+
+    // a manager guarding its own state is called without the shared monitor
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
\ No newline at end of file
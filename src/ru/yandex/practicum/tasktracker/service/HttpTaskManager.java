@@ -8,33 +8,41 @@ import ru.yandex.practicum.tasktracker.model.Epic;
 import ru.yandex.practicum.tasktracker.model.Subtask;
 import ru.yandex.practicum.tasktracker.model.Task;
 import ru.yandex.practicum.tasktracker.server.KVTaskClient;
+import ru.yandex.practicum.tasktracker.service.exception.ManagerSaveException;
 import ru.yandex.practicum.tasktracker.utils.Managers;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class HttpTaskManager extends FileBackedTasksManager {
     static final String KEY_TASKS = "tasks";
     static final String KEY_SUBTASKS = "subtasks";
     static final String KEY_EPICS = "epics";
     static final String KEY_HISTORY = "history";
+    static final String KEY_RESERVED_ID = "ids";
     private final KVTaskClient client;
+    // null while saves are synchronous
+    private KVWriteQueue writeQueue;
     private static final Gson gson = Managers.getGson();
 
     public HttpTaskManager(HistoryManager historyManager, String path) throws IOException, InterruptedException {
-        super(historyManager, path);
+        // the state lives on the KV server, the path is its URL
+        super(historyManager, path, false, false);
         client = new KVTaskClient(path);
     }
 
     public void loadFromServer() {
-
+        invalidateSnapshot();
+        resetEpicAggregates();
         JsonElement jsonTasks = JsonParser.parseString(client.load(KEY_TASKS));
         if (!jsonTasks.isJsonNull()) {
             JsonArray jsonTasksArray = jsonTasks.getAsJsonArray();
             for (JsonElement jsonTask : jsonTasksArray) {
                 Task task = gson.fromJson(jsonTask, Task.class);
-                ++generatorId;
+                idAllocator.advanceTo(task.getId());
                 tasks.put(task.getId(), task);
-                prioritizedTasks.add(task);
+                schedule(task);
             }
         }
 
@@ -43,7 +51,7 @@ public class HttpTaskManager extends FileBackedTasksManager {
             JsonArray jsonEpicsArray = jsonEpics.getAsJsonArray();
             for (JsonElement jsonEpic : jsonEpicsArray) {
                 Epic task = gson.fromJson(jsonEpic, Epic.class);
-                ++generatorId;
+                idAllocator.advanceTo(task.getId());
                 epics.put(task.getId(), task);
             }
         }
@@ -53,12 +61,17 @@ public class HttpTaskManager extends FileBackedTasksManager {
             JsonArray jsonSubtasksArray = jsonSubtasks.getAsJsonArray();
             for (JsonElement jsonSubtask : jsonSubtasksArray) {
                 Subtask task = gson.fromJson(jsonSubtask, Subtask.class);
-                ++generatorId;
+                idAllocator.advanceTo(task.getId());
                 subtasks.put(task.getId(), task);
-                prioritizedTasks.add(task);
+                schedule(task);
             }
         }
 
+        JsonElement jsonReservedId = JsonParser.parseString(client.load(KEY_RESERVED_ID));
+        if (!jsonReservedId.isJsonNull()) {
+            idAllocator.restoreReservation(jsonReservedId.getAsInt());
+        }
+
         JsonElement jsonHistoryList = JsonParser.parseString(client.load(KEY_HISTORY));
         if (!jsonHistoryList.isJsonNull()) {
             JsonArray jsonHistoryArray = jsonHistoryList.getAsJsonArray();
@@ -68,14 +81,76 @@ public class HttpTaskManager extends FileBackedTasksManager {
         }
     }
 
+    // saves return right away, at most maxOutstandingWrites writes wait for the server before a save blocks;
+    // with coalescing only the latest state of a key is sent when several saves wait
+    public synchronized void enableAsyncSaves(int maxOutstandingWrites, boolean coalescing) {
+        writeQueue = new KVWriteQueue(client, maxOutstandingWrites, coalescing);
+    }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        KVWriteQueue queue;
+        synchronized (this) {
+            queue = writeQueue;
+        }
+        return queue == null ? super.flush() : super.flush().thenCompose(ignored -> queue.flush());
+    }
+
+    // the group commit flushes its pending changes on close, so the writes are awaited after it
+    @Override
+    public void close() {
+        super.close();
+        KVWriteQueue queue;
+        synchronized (this) {
+            queue = writeQueue;
+        }
+        if (queue != null) {
+            queue.flush().join();
+        }
+    }
+
+    // the keys go out concurrently, a synchronous save waits for all of them
     @Override
     public void save() {
-        client.put(KEY_TASKS, gson.toJson(tasks.values()));
-        client.put(KEY_SUBTASKS, gson.toJson(subtasks.values()));
-        client.put(KEY_EPICS, gson.toJson(epics.values()));
-        client.put(KEY_HISTORY, gson.toJson(getHistory()
+        await(CompletableFuture.allOf(
+                write(KEY_TASKS, gson.toJson(tasks.values())),
+                write(KEY_SUBTASKS, gson.toJson(subtasks.values())),
+                write(KEY_EPICS, gson.toJson(epics.values())),
+                writeHistory()));
+    }
+
+    @Override
+    protected void saveReservedId(int reservedId) {
+        client.put(KEY_RESERVED_ID, gson.toJson(reservedId));
+    }
+
+    @Override
+    public void saveHistory() {
+        await(writeHistory());
+    }
+
+    private CompletableFuture<Void> writeHistory() {
+        return write(KEY_HISTORY, gson.toJson(getHistory()
                 .stream()
                 .map(Task::getId)
                 .toList()));
     }
-}
\ No newline at end of file
+
+    private CompletableFuture<Void> write(String key, String json) {
+        return writeQueue == null ? client.putAsync(key, json) : writeQueue.write(key, json);
+    }
+
+    private void await(CompletableFuture<Void> writes) {
+        if (writeQueue != null) {
+            return;
+        }
+        try {
+            writes.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ManagerSaveException saveException) {
+                throw saveException;
+            }
+            throw new ManagerSaveException("Failed to save data", e.getCause());
+        }
+    }
+}
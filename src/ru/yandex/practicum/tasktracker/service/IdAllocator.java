@@ -0,0 +1,58 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+// hands out ids of all entity types without locking; a persistent manager reserves them in blocks, so only
+// the end of the current block has to be saved and a restart continues after it instead of reusing ids
+public class IdAllocator {
+    private final AtomicInteger lastId = new AtomicInteger();
+    private volatile int reservedId = Integer.MAX_VALUE;
+    private int blockSize;
+    private IntConsumer reservationListener;
+
+    // the listener must persist the reserved id before it returns, ids past the old block wait for it
+    public synchronized void reserveInBlocks(int blockSize, IntConsumer reservationListener) {
+        this.blockSize = blockSize;
+        this.reservationListener = reservationListener;
+        reservedId = lastId.get();
+    }
+
+    public int nextId() {
+        int id = lastId.incrementAndGet();
+        if (id > reservedId) {
+            reserve(id);
+        }
+        return id;
+    }
+
+    public int getLastId() {
+        return lastId.get();
+    }
+
+    public int getReservedId() {
+        return reservedId;
+    }
+
+    // ids up to id are taken, e.g. by entities read from a snapshot
+    public void advanceTo(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    // any id of a saved reservation may have been handed out before a restart, so none of them is reused
+    public synchronized void restoreReservation(int savedReservedId) {
+        advanceTo(savedReservedId);
+        if (reservationListener != null) {
+            reservedId = Math.max(reservedId, savedReservedId);
+        }
+    }
+
+    private synchronized void reserve(int id) {
+        if (id <= reservedId) {
+            return;
+        }
+        int newReservedId = (int) Math.min((long) id + blockSize - 1, Integer.MAX_VALUE - 1);
+        reservationListener.accept(newReservedId);
+        reservedId = newReservedId;
+    }
+}
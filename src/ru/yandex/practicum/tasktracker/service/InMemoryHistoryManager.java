@@ -1,14 +1,13 @@
 package ru.yandex.practicum.tasktracker.service;
 
 import ru.yandex.practicum.tasktracker.model.Task;
+import ru.yandex.practicum.tasktracker.utils.IntObjectMap;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class InMemoryHistoryManager implements HistoryManager {
-    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final IntObjectMap<Node> nodes = new IntObjectMap<>();
 
     private Node first;
     private Node last;
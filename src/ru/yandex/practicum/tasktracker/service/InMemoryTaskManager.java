@@ -6,24 +6,41 @@ import ru.yandex.practicum.tasktracker.model.Task;
 import ru.yandex.practicum.tasktracker.model.TaskStatus;
 import ru.yandex.practicum.tasktracker.model.TaskType;
 import ru.yandex.practicum.tasktracker.service.exception.IntersectionException;
+import ru.yandex.practicum.tasktracker.utils.IntObjectMap;
+import ru.yandex.practicum.tasktracker.utils.IntSet;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class InMemoryTaskManager implements TaskManager {
-    protected int generatorId;
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Subtask> subtasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    protected TreeSet<Task> prioritizedTasks = new TreeSet<>(Comparator.comparing(Task::getStartTime,
-            Comparator.nullsLast(Comparator.naturalOrder())).thenComparing(Task::getId));
+    protected final IdAllocator idAllocator = new IdAllocator();
+    // any entity by id, kept in step with the typed maps below
+    protected final EntityIndex entities = new EntityIndex();
+    protected final IntObjectMap<Task> tasks = new EntityMap<>(entities);
+    protected final IntObjectMap<Subtask> subtasks = new EntityMap<>(entities);
+    protected final IntObjectMap<Epic> epics = new EntityMap<>(entities);
+    protected static final Comparator<Task> PRIORITY_ORDER = Comparator.comparing(Task::getStartTime,
+            Comparator.nullsLast(Comparator.naturalOrder())).thenComparing(Task::getId);
+    // one index per scheduled type, so deleting all entities of a type drops its whole index
+    protected final Map<TaskType, PrioritizedIndex> prioritizedIndexes = new EnumMap<>(TaskType.class);
+    // per type as well, queries consult every index
+    protected final Map<TaskType, IntervalIndex> intervalIndexes = new EnumMap<>(TaskType.class);
+    // built on first use, dropped whenever subtasks are replaced without going through the epic updates
+    private final IntObjectMap<EpicAggregate> epicAggregates = new IntObjectMap<>();
     protected final HistoryManager historyManager;
+    // reads run in parallel, mutations are exclusive since they check intersections and recompute epics
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long version;
+    private volatile TaskSnapshot snapshot;
+    // taken before the read lock, so readers arriving after a mutation build the snapshot only once
+    private final Object snapshotRebuild = new Object();
 
     public InMemoryTaskManager(HistoryManager historyManager) {
         this.historyManager = historyManager;
@@ -31,269 +48,538 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        return getSnapshot().getPrioritizedTasks();
     }
 
     @Override
     public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values());
+        return getSnapshot().getTasks();
     }
 
     @Override
     public List<Subtask> getAllSubTasks() {
-        return new ArrayList<>(subtasks.values());
+        return getSnapshot().getSubtasks();
     }
 
     @Override
     public List<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values());
+        return getSnapshot().getEpics();
+    }
+
+    // built by the first read after a mutation, then handed out without copying or locking
+    @Override
+    public TaskSnapshot getSnapshot() {
+        TaskSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (snapshotRebuild) {
+            lock.readLock().lock();
+            try {
+                current = snapshot;
+                if (current == null) {
+                    current = new TaskSnapshot(version, tasks.values(), subtasks.values(), epics.values(),
+                            PrioritizedIndex.merge(prioritizedIndexes.values()));
+                    snapshot = current;
+                }
+                return current;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public List<Task> getTasksOverlapping(LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            return findOverlapping(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int count) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Slot duration must be positive: " + duration);
+        }
+        List<LocalDateTime> slots = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            LocalDateTime slot = from;
+            while (slots.size() < count && (slot = findFreeSlot(duration, slot, to)) != null) {
+                slots.add(slot);
+                slot = slot.plus(duration);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return slots;
+    }
+
+    @Override
+    public List<Task> autoSchedule(Integer epicId, LocalDateTime from, LocalDateTime to) {
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            List<Task> unscheduledTasks = new ArrayList<>();
+            if (epicId == null) {
+                tasks.values().stream().filter(InMemoryTaskManager::isUnscheduled).forEach(unscheduledTasks::add);
+                subtasks.values().stream().filter(InMemoryTaskManager::isUnscheduled).forEach(unscheduledTasks::add);
+            } else if (epics.containsKey(epicId)) {
+                epics.get(epicId).forEachSubtaskId(subtaskId -> {
+                    Subtask subtask = subtasks.get(subtaskId);
+                    if (isUnscheduled(subtask)) {
+                        unscheduledTasks.add(subtask);
+                    }
+                });
+            }
+            // first fit decreasing, the short tasks fill the gaps left by the long ones
+            unscheduledTasks.sort(Comparator.comparing(Task::getDuration).reversed().thenComparing(Task::getId));
+            List<Task> scheduledTasks = new ArrayList<>();
+            IntSet changedEpicIds = new IntSet();
+            for (Task task : unscheduledTasks) {
+                LocalDateTime startTime = findFreeSlot(task.getDuration(), from, to);
+                if (startTime == null) {
+                    continue;
+                }
+                unschedule(task);
+                task.setStartTime(startTime);
+                schedule(task);
+                scheduledTasks.add(task);
+                if (task instanceof Subtask subtask) {
+                    epicAggregate(epics.get(subtask.getEpicId())).put(subtask);
+                    changedEpicIds.add(subtask.getEpicId());
+                }
+            }
+            changedEpicIds.forEachInt(id -> epicAggregate(epics.get(id)).applyTo(epics.get(id)));
+            return scheduledTasks;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public List<Task> getHistory() {
-        return historyManager.getHistory();
+        if (historyManager.isThreadSafe()) {
+            return historyManager.getHistory();
+        }
+        synchronized (historyManager) {
+            return historyManager.getHistory();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(String clientId) {
+        if (historyManager.isThreadSafe()) {
+            return historyManager.getHistory(clientId);
+        }
+        synchronized (historyManager) {
+            return historyManager.getHistory(clientId);
+        }
     }
 
     @Override
     public List<Subtask> getSubtasksByEpicId(int epicId) {
-        Epic epic = epics.get(epicId);
-        return epic.getSubtaskIds().stream().map(subtasks::get).toList();
+        lock.readLock().lock();
+        try {
+            Epic epic = epics.get(epicId);
+            List<Subtask> subtasksOfEpic = new ArrayList<>(epic.getSubtaskIds().size());
+            epic.forEachSubtaskId(subtaskId -> subtasksOfEpic.add(subtasks.get(subtaskId)));
+            return subtasksOfEpic;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
     public void deleteAllTasks() {
-        tasks.keySet().forEach(historyManager::remove);
-        tasks.clear();
-        prioritizedTasks.removeIf(task -> task.getType() == TaskType.TASK);
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            tasks.keySet().forEach(this::removeFromHistory);
+            tasks.clear();
+            prioritizedIndexes.remove(TaskType.TASK);
+            intervalIndexes.remove(TaskType.TASK);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void deleteAllSubtasks() {
-        subtasks.keySet().forEach(historyManager::remove);
-        epics.values().forEach(epic -> {
-            epic.clearSubtaskIds();
-            epic.setStatus(TaskStatus.NEW);
-            epic.setStartTime(null);
-            epic.setDuration(0);
-            epic.setEndTime(null);
-        });
-        subtasks.clear();
-        prioritizedTasks.removeIf(task -> task.getType() == TaskType.SUBTASK);
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            subtasks.keySet().forEach(this::removeFromHistory);
+            epics.values().forEach(epic -> {
+                epic.clearSubtaskIds();
+                epic.setStatus(TaskStatus.NEW);
+                epic.setStartTime(null);
+                epic.setDuration(0);
+                epic.setEndTime(null);
+            });
+            epicAggregates.clear();
+            subtasks.clear();
+            prioritizedIndexes.remove(TaskType.SUBTASK);
+            intervalIndexes.remove(TaskType.SUBTASK);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void deleteAllEpics() {
-        epics.keySet().forEach(historyManager::remove);
-        subtasks.keySet().forEach(historyManager::remove);
-        epics.clear();
-        subtasks.clear();
-        prioritizedTasks.removeIf(task -> task.getType() == TaskType.SUBTASK);
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            epics.keySet().forEach(this::removeFromHistory);
+            subtasks.keySet().forEach(this::removeFromHistory);
+            epics.clear();
+            subtasks.clear();
+            epicAggregates.clear();
+            // epics are never scheduled themselves, only their subtasks are
+            prioritizedIndexes.remove(TaskType.SUBTASK);
+            intervalIndexes.remove(TaskType.SUBTASK);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
+    // lookups share the read lock, only the history update is serialized
     @Override
     public Task getTaskById(int taskId) {
-        Task task = tasks.get(taskId);
-        if (task != null) {
-            historyManager.add(task);
+        Task task;
+        lock.readLock().lock();
+        try {
+            task = tasks.get(taskId);
+            if (task != null) {
+                addToHistory(task);
+            }
+        } finally {
+            lock.readLock().unlock();
         }
         return task;
     }
 
     @Override
     public Subtask getSubtaskById(int subtaskId) {
-        Subtask subtask = subtasks.get(subtaskId);
-        if (subtask != null) {
-            historyManager.add(subtask);
+        Subtask subtask;
+        lock.readLock().lock();
+        try {
+            subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                addToHistory(subtask);
+            }
+        } finally {
+            lock.readLock().unlock();
         }
         return subtask;
     }
 
     @Override
     public Epic getEpicById(int epicId) {
-        Epic epic = epics.get(epicId);
-        if (epic != null) {
-            historyManager.add(epic);
+        Epic epic;
+        lock.readLock().lock();
+        try {
+            epic = epics.get(epicId);
+            if (epic != null) {
+                addToHistory(epic);
+            }
+        } finally {
+            lock.readLock().unlock();
         }
         return epic;
     }
 
     @Override
     public void addTask(Task task) {
-        ++generatorId;
-        task.setId(generatorId);
-        checkIntersections(task);
-        tasks.put(generatorId, task);
-        prioritizedTasks.add(task);
+        int id = idAllocator.nextId();
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            task.setId(id);
+            checkIntersections(task);
+            tasks.put(id, task);
+            schedule(task);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void addSubtask(Subtask subtask) {
-        ++generatorId;
-        subtask.setId(generatorId);
-        Epic epic = epics.get(subtask.getEpicId());
-        if (epic != null) {
-            checkIntersections(subtask);
-            subtasks.put(generatorId, subtask);
-            epic.addSubtaskId(generatorId);
-            updateEpic(epic);
-            prioritizedTasks.add(subtask);
+        int id = idAllocator.nextId();
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            subtask.setId(id);
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null) {
+                checkIntersections(subtask);
+                subtasks.put(id, subtask);
+                epic.addSubtaskId(id);
+                epicAggregate(epic).put(subtask);
+                updateEpic(epic);
+                schedule(subtask);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     @Override
     public void addEpic(Epic epic) {
-        ++generatorId;
-        epic.setId(generatorId);
-        epics.put(generatorId, epic);
-        epic.setStatus(TaskStatus.NEW);
+        int id = idAllocator.nextId();
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            epic.setId(id);
+            epics.put(id, epic);
+            epic.setStatus(TaskStatus.NEW);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void updateTask(Task task) {
-        Task updateTask = tasks.get(task.getId());
-        // Before checking, delete the updated task
-        prioritizedTasks.remove(updateTask);
-        checkIntersections(task);
-        tasks.put(task.getId(), task);
-        prioritizedTasks.add(task);
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            Task updateTask = tasks.get(task.getId());
+            // Before checking, delete the updated task
+            unschedule(updateTask);
+            checkIntersections(task);
+            tasks.put(task.getId(), task);
+            schedule(task);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        calculateEpicStatus(epic);
-        calculateEpicTime(epic);
-        epics.put(epic.getId(), epic);
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            // a replacement may list other subtasks than the stored epic
+            if (epics.get(epic.getId()) != epic) {
+                epicAggregates.remove(epic.getId());
+            }
+            epicAggregate(epic).applyTo(epic);
+            epics.put(epic.getId(), epic);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        Subtask updateSubtask = subtasks.get(subtask.getId());
-        // Before checking, delete the updated task
-        prioritizedTasks.remove(updateSubtask);
-        checkIntersections(subtask);
-        subtasks.put(subtask.getId(), subtask);
-        Epic epic = epics.get(subtask.getEpicId());
-        updateEpic(epic);
-        prioritizedTasks.add(subtask);
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            Subtask updateSubtask = subtasks.get(subtask.getId());
+            // Before checking, delete the updated task
+            unschedule(updateSubtask);
+            checkIntersections(subtask);
+            subtasks.put(subtask.getId(), subtask);
+            Epic epic = epics.get(subtask.getEpicId());
+            epicAggregate(epic).put(subtask);
+            updateEpic(epic);
+            schedule(subtask);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void deleteTaskById(int taskId) {
-        prioritizedTasks.remove(tasks.get(taskId));
-        tasks.remove(taskId);
-        historyManager.remove(taskId);
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            unschedule(tasks.get(taskId));
+            tasks.remove(taskId);
+            removeFromHistory(taskId);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void deleteSubtaskById(int subtaskId) {
-        prioritizedTasks.remove(subtasks.get(subtaskId));
-        Subtask subtask = subtasks.get(subtaskId);
-        Epic epic = epics.get(subtask.getEpicId());
-        subtasks.remove(subtaskId);
-        epic.removeSubtaskId(subtaskId);
-        updateEpic(epic);
-        historyManager.remove(subtaskId);
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            unschedule(subtasks.get(subtaskId));
+            Subtask subtask = subtasks.get(subtaskId);
+            Epic epic = epics.get(subtask.getEpicId());
+            subtasks.remove(subtaskId);
+            epic.removeSubtaskId(subtaskId);
+            epicAggregate(epic).remove(subtaskId);
+            updateEpic(epic);
+            removeFromHistory(subtaskId);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void deleteEpicById(int epicId) {
-        Epic epic = epics.get(epicId);
-        for (Integer subtaskId : epic.getSubtaskIds()) {
-            prioritizedTasks.remove(subtasks.get(subtaskId));
-            subtasks.remove(subtaskId);
-            historyManager.remove(subtaskId);
+        lock.writeLock().lock();
+        try {
+            invalidateSnapshot();
+            Epic epic = epics.get(epicId);
+            epic.forEachSubtaskId(subtaskId -> {
+                unschedule(subtasks.remove(subtaskId));
+                removeFromHistory(subtaskId);
+            });
+            epics.remove(epicId);
+            epicAggregates.remove(epicId);
+            removeFromHistory(epicId);
+        } finally {
+            lock.writeLock().unlock();
         }
-        epics.remove(epicId);
-        historyManager.remove(epicId);
     }
 
-    private void checkIntersections(Task task) {
-        // if the task is without start time, then do not check
-        String textErrorMessage = "Intersection between \"%s\" and \"%s\"";
-        if (task.getStartTime() == null) {
+    // readers record views under the shared read lock, so the history manager has its own monitor
+    // unless it is thread-safe itself
+    protected void addToHistory(Task task) {
+        if (historyManager.isThreadSafe()) {
+            historyManager.add(task);
             return;
         }
-        Task preTaskOfStartTime = prioritizedTasks.lower(task);
-        Task afterTaskOfStartTime = prioritizedTasks.higher(task);
-        if (preTaskOfStartTime == null && afterTaskOfStartTime == null) {
-            return;
+        synchronized (historyManager) {
+            historyManager.add(task);
         }
-        // if the next task has no start time do not check
-        if (preTaskOfStartTime == null && afterTaskOfStartTime.getStartTime() == null) {
+    }
+
+    protected void removeFromHistory(int taskId) {
+        if (historyManager.isThreadSafe()) {
+            historyManager.remove(taskId);
             return;
         }
-        if (preTaskOfStartTime == null) {
-            if (task.getEndTime().isAfter(afterTaskOfStartTime.getStartTime())) {
-                throw new IntersectionException(textErrorMessage.formatted(task.getName(),
-                        afterTaskOfStartTime.getName()));
-            }
-            return;
+        synchronized (historyManager) {
+            historyManager.remove(taskId);
         }
-        if (afterTaskOfStartTime == null || afterTaskOfStartTime.getStartTime() == null) {
-            if (task.getStartTime().isBefore(preTaskOfStartTime.getEndTime())) {
-                throw new IntersectionException(textErrorMessage.formatted(task.getName(),
-                        preTaskOfStartTime.getName()));
-            }
+    }
+
+    // must be called with the write lock held, or before the manager is shared, by anything changing the maps
+    protected void invalidateSnapshot() {
+        version++;
+        snapshot = null;
+    }
+
+    // for loads that put subtasks into the maps directly
+    protected void resetEpicAggregates() {
+        epicAggregates.clear();
+    }
+
+    // replaces the indexes in linear time, the tasks must already be sorted by PRIORITY_ORDER
+    protected void rebuildPrioritizedTasks(List<Task> sortedTasks) {
+        invalidateSnapshot();
+        Map<TaskType, List<Task>> sortedTasksByType = new EnumMap<>(TaskType.class);
+        for (Task task : sortedTasks) {
+            sortedTasksByType.computeIfAbsent(task.getType(), type -> new ArrayList<>()).add(task);
+        }
+        prioritizedIndexes.clear();
+        intervalIndexes.clear();
+        sortedTasksByType.forEach((type, tasksOfType) -> {
+            prioritizedIndexes.put(type, new PrioritizedIndex(tasksOfType));
+            IntervalIndex intervalIndex = new IntervalIndex();
+            intervalIndex.rebuild(tasksOfType);
+            intervalIndexes.put(type, intervalIndex);
+        });
+    }
+
+    // tasks and subtasks only, epics take their time from their subtasks
+    protected void schedule(Task task) {
+        prioritizedIndexes.computeIfAbsent(task.getType(), type -> new PrioritizedIndex()).add(task);
+        intervalIndexes.computeIfAbsent(task.getType(), type -> new IntervalIndex()).add(task);
+    }
+
+    protected void unschedule(Task task) {
+        if (task == null) {
             return;
         }
-        if (task.getEndTime().isAfter(afterTaskOfStartTime.getStartTime())) {
-            throw new IntersectionException(textErrorMessage.formatted(task.getName(),
-                    afterTaskOfStartTime.getName()));
+        PrioritizedIndex prioritizedIndex = prioritizedIndexes.get(task.getType());
+        if (prioritizedIndex != null) {
+            prioritizedIndex.remove(task.getId());
         }
-        if (task.getStartTime().isBefore(preTaskOfStartTime.getEndTime())) {
-            throw new IntersectionException(textErrorMessage.formatted(task.getName(),
-                    preTaskOfStartTime.getName()));
+        IntervalIndex intervalIndex = intervalIndexes.get(task.getType());
+        if (intervalIndex != null) {
+            intervalIndex.remove(task.getId());
         }
     }
 
-    private void calculateEpicStatus(Epic epic) {
-        boolean isNew = true;
-        boolean isDone = true;
-        for (Integer subtaskId : epic.getSubtaskIds()) {
-            Subtask subtask = subtasks.get(subtaskId);
-            TaskStatus subtaskStatus = subtask.getStatus();
-            switch (subtaskStatus) {
-                case NEW -> isDone = false;
-                case IN_PROGRESS -> {
-                    isNew = false;
-                    isDone = false;
+    // ordered by start time and id
+    private List<Task> findOverlapping(LocalDateTime from, LocalDateTime to) {
+        List<Task> overlappingTasks = new ArrayList<>();
+        intervalIndexes.values().forEach(index -> overlappingTasks.addAll(index.findOverlapping(from, to)));
+        overlappingTasks.sort(PRIORITY_ORDER);
+        return overlappingTasks;
+    }
+
+    // every index moves the slot to its next free one, until the slot is free in all of them
+    private LocalDateTime findFreeSlot(Duration duration, LocalDateTime from, LocalDateTime to) {
+        if (from.plus(duration).isAfter(to)) {
+            return null;
+        }
+        LocalDateTime slot = from;
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            for (IntervalIndex intervalIndex : intervalIndexes.values()) {
+                LocalDateTime indexSlot = intervalIndex.findFreeSlot(duration, slot, to);
+                if (indexSlot == null) {
+                    return null;
+                }
+                if (indexSlot.isAfter(slot)) {
+                    slot = indexSlot;
+                    moved = true;
                 }
-                case DONE -> isNew = false;
             }
         }
-        if (!isNew && !isDone) {
-            epic.setStatus(TaskStatus.IN_PROGRESS);
-        } else if (isNew && !isDone) {
-            epic.setStatus(TaskStatus.NEW);
-        } else if (!isNew) {
-            epic.setStatus(TaskStatus.DONE);
-        } else {
-            epic.setStatus(TaskStatus.NEW);
+        return slot;
+    }
+
+    // a task without duration has no time to reserve, so it is left as it is
+    private static boolean isUnscheduled(Task task) {
+        return task.getStartTime() == null && !task.getDuration().isZero();
+    }
+
+    // reports the first overlapping task starting after the task, otherwise the last one starting before it
+    private void checkIntersections(Task task) {
+        // if the task is without start time, then do not check
+        if (task.getStartTime() == null) {
+            return;
         }
+        List<Task> overlappingTasks = findOverlapping(task.getStartTime(), task.getEndTime());
+        if (overlappingTasks.isEmpty()) {
+            return;
+        }
+        Task overlappingTask = overlappingTasks.stream()
+                .filter(other -> PRIORITY_ORDER.compare(other, task) > 0)
+                .findFirst()
+                .orElse(overlappingTasks.get(overlappingTasks.size() - 1));
+        throw new IntersectionException("Intersection between \"%s\" and \"%s\"".formatted(task.getName(),
+                overlappingTask.getName()));
     }
 
-    private void calculateEpicTime(Epic epic) {
-        LocalDateTime start = null;
-        LocalDateTime endTime = null;
-        Duration epicNewDuration = Duration.ofMinutes(0);
-        for (Integer subtaskId : epic.getSubtaskIds()) {
-            Subtask subtask = subtasks.get(subtaskId);
-            if (subtask.getStartTime() == null) {
-                continue;
-            }
-            LocalDateTime subtaskStartTime = subtask.getStartTime();
-            LocalDateTime subtaskEndTime = subtask.getEndTime();
-            long subtaskDuration = subtask.getDuration().toMinutes();
-            if (start == null || subtaskStartTime.isBefore(start)) {
-                start = subtaskStartTime;
-            }
-            if (endTime == null || subtaskEndTime.isAfter(endTime)) {
-                endTime = subtaskEndTime;
-            }
-            epicNewDuration = epicNewDuration.plusMinutes(subtaskDuration);
+    private EpicAggregate epicAggregate(Epic epic) {
+        EpicAggregate aggregate = epicAggregates.get(epic.getId());
+        if (aggregate == null) {
+            EpicAggregate builtAggregate = new EpicAggregate();
+            epic.forEachSubtaskId(subtaskId -> {
+                Subtask subtask = subtasks.get(subtaskId);
+                if (subtask != null) {
+                    builtAggregate.put(subtask);
+                }
+            });
+            aggregate = builtAggregate;
+            epicAggregates.put(epic.getId(), aggregate);
         }
-        epic.setStartTime(start);
-        epic.setEndTime(endTime);
-        epic.setDuration(epicNewDuration.toMinutes());
+        return aggregate;
     }
 }
\ No newline at end of file
@@ -0,0 +1,286 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Task;
+import ru.yandex.practicum.tasktracker.utils.IntObjectMap;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// scheduled tasks as [start, end) intervals in an AVL tree ordered by start and id, every node keeps the
+// latest end of its subtree, so overlap and window queries take O(log n + k);
+// a task without duration is the point of its start, it collides only with a task running across that moment,
+// as with the neighbour checks before, so tasks without duration may share a start time;
+// nodes also keep the earliest start and the widest gap between consecutive intervals of their subtree,
+// which lets free slot searches skip every subtree that has no gap long enough
+public class IntervalIndex {
+    private static final long NO_SLOT = Long.MIN_VALUE;
+    // no interval follows, the gap up to it is unbounded
+    private static final long NO_NEXT_START = Long.MAX_VALUE;
+    private final IntObjectMap<Node> nodes = new IntObjectMap<>();
+    private Node root;
+
+    // tasks without a start time are not indexed
+    public void add(Task task) {
+        remove(task.getId());
+        if (task.getStartTime() == null) {
+            return;
+        }
+        Node node = new Node(task);
+        root = insert(root, node);
+        nodes.put(node.id, node);
+    }
+
+    // by id, the task may have been changed since it was added
+    public void remove(int taskId) {
+        Node node = nodes.remove(taskId);
+        if (node != null) {
+            root = delete(root, node.start, node.id);
+        }
+    }
+
+    public void clear() {
+        nodes.clear();
+        root = null;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    // replaces the content in linear time, the tasks must be sorted by start time and id, unscheduled ones last
+    public void rebuild(List<Task> sortedTasks) {
+        clear();
+        List<Node> sortedNodes = new ArrayList<>(sortedTasks.size());
+        for (Task task : sortedTasks) {
+            if (task.getStartTime() == null) {
+                break;
+            }
+            Node node = new Node(task);
+            sortedNodes.add(node);
+            nodes.put(node.id, node);
+        }
+        root = build(sortedNodes, 0, sortedNodes.size());
+    }
+
+    // the tasks overlapping [from, to) ordered by start time
+    public List<Task> findOverlapping(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        collectOverlapping(root, toSecond(from), toSecond(to), result);
+        return result;
+    }
+
+    public boolean hasOverlapping(LocalDateTime from, LocalDateTime to) {
+        long start = toSecond(from);
+        long end = toSecond(to);
+        Node node = root;
+        while (node != null) {
+            if (node.start < end && node.end > start) {
+                return true;
+            }
+            // a left interval ending after start also begins before end, unless nothing at or right of node does
+            node = node.left != null && node.left.maxEnd > start ? node.left : node.right;
+        }
+        return false;
+    }
+
+    // the earliest start of a free [start, start + duration) slot inside [from, to), or null if there is none
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime from, LocalDateTime to) {
+        long length = Math.max(duration.getSeconds(), 1);
+        long latestStart = toSecond(to) - length;
+        long start = findFreeSlot(root, toSecond(from), NO_NEXT_START, length, latestStart);
+        return start != NO_SLOT ? LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC) : null;
+    }
+
+    // covered is the moment every interval before the subtree has ended by, nextStart the start of the first
+    // interval after it; the subtree gaps only bound the real ones from above when intervals overlap
+    private long findFreeSlot(Node node, long covered, long nextStart, long length, long latestStart) {
+        if (covered > latestStart) {
+            return NO_SLOT;
+        }
+        if (node == null || node.maxEnd <= covered) {
+            return gap(covered, nextStart) >= length ? covered : NO_SLOT;
+        }
+        long widestGap = Math.max(node.minStart - covered,
+                Math.max(node.maxGap, gap(Math.max(covered, node.maxEnd), nextStart)));
+        if (widestGap < length) {
+            return NO_SLOT;
+        }
+        long start = findFreeSlot(node.left, covered, node.start, length, latestStart);
+        if (start != NO_SLOT) {
+            return start;
+        }
+        covered = Math.max(covered, node.end);
+        if (node.left != null) {
+            covered = Math.max(covered, node.left.maxEnd);
+        }
+        return findFreeSlot(node.right, covered, nextStart, length, latestStart);
+    }
+
+    // subtracting from NO_NEXT_START would overflow for a negative end, i.e. one before 1970
+    private static long gap(long end, long nextStart) {
+        return nextStart == NO_NEXT_START ? Long.MAX_VALUE : nextStart - end;
+    }
+
+    private void collectOverlapping(Node node, long start, long end, List<Task> result) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        collectOverlapping(node.left, start, end, result);
+        if (node.start < end) {
+            if (node.end > start) {
+                result.add(node.task);
+            }
+            collectOverlapping(node.right, start, end, result);
+        }
+    }
+
+    private Node insert(Node node, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (compare(inserted.start, inserted.id, node) < 0) {
+            node.left = insert(node.left, inserted);
+        } else {
+            node.right = insert(node.right, inserted);
+        }
+        return balance(node);
+    }
+
+    // relinks the successor node instead of copying it, the id map keeps pointing to live nodes
+    private Node delete(Node node, long start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = compare(start, id, node);
+        if (comparison < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private Node build(List<Node> sortedNodes, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node node = sortedNodes.get(middle);
+        node.left = build(sortedNodes, from, middle);
+        node.right = build(sortedNodes, middle + 1, to);
+        update(node);
+        return node;
+    }
+
+    private Node balance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.maxEnd = node.end;
+        node.minStart = node.start;
+        node.maxGap = 0;
+        if (node.left != null) {
+            node.maxGap = Math.max(node.left.maxGap, node.start - node.left.maxEnd);
+            node.maxEnd = Math.max(node.maxEnd, node.left.maxEnd);
+            node.minStart = node.left.minStart;
+        }
+        if (node.right != null) {
+            node.maxGap = Math.max(node.maxGap, Math.max(node.right.maxGap, node.right.minStart - node.maxEnd));
+            node.maxEnd = Math.max(node.maxEnd, node.right.maxEnd);
+        }
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int compare(long start, int id, Node node) {
+        int comparison = Long.compare(start, node.start);
+        return comparison != 0 ? comparison : Integer.compare(id, node.id);
+    }
+
+    private static long toSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static class Node {
+        final Task task;
+        final int id;
+        final long start;
+        final long end;
+        long maxEnd;
+        long minStart;
+        long maxGap;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(Task task) {
+            this.task = task;
+            this.id = task.getId();
+            this.start = toSecond(task.getStartTime());
+            this.end = toSecond(task.getEndTime());
+            this.maxEnd = end;
+            this.minStart = start;
+        }
+    }
+}
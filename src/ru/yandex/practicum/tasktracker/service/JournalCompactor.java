@@ -0,0 +1,78 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.service.exception.ManagerSaveException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class JournalCompactor {
+    public static final long DEFAULT_MAX_JOURNAL_BYTES = 8 * 1024 * 1024;
+    public static final int DEFAULT_MAX_JOURNAL_RECORDS = 100_000;
+    public static final long DEFAULT_CHECK_PERIOD_MILLIS = 1000;
+    private final FileBackedTasksManager tasksManager;
+    private final long maxJournalBytes;
+    private final int maxJournalRecords;
+    private final long checkPeriodMillis;
+    private ScheduledExecutorService executor;
+    // the failure of the last scheduled check, null once a check succeeds
+    private volatile ManagerSaveException lastFailure;
+
+    public JournalCompactor(FileBackedTasksManager tasksManager) {
+        this(tasksManager, DEFAULT_MAX_JOURNAL_BYTES, DEFAULT_MAX_JOURNAL_RECORDS, DEFAULT_CHECK_PERIOD_MILLIS);
+    }
+
+    public JournalCompactor(FileBackedTasksManager tasksManager, long maxJournalBytes, int maxJournalRecords,
+                            long checkPeriodMillis) {
+        this.tasksManager = tasksManager;
+        this.maxJournalBytes = maxJournalBytes;
+        this.maxJournalRecords = maxJournalRecords;
+        this.checkPeriodMillis = checkPeriodMillis;
+    }
+
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::checkJournal, checkPeriodMillis, checkPeriodMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // waits for a running compaction, the manager may close its journal right after
+    public void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public ManagerSaveException getLastFailure() {
+        return lastFailure;
+    }
+
+    // keeps the schedule alive, the next check retries a failed compaction
+    void checkJournal() {
+        try {
+            compactIfNeeded();
+            lastFailure = null;
+        } catch (ManagerSaveException e) {
+            lastFailure = e;
+        }
+    }
+
+    boolean compactIfNeeded() {
+        if (tasksManager.getJournalRecordCount() < maxJournalRecords
+                && tasksManager.getJournalSize() < maxJournalBytes) {
+            return false;
+        }
+        tasksManager.compact();
+        return true;
+    }
+}
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.tasktracker.service;
+
+public enum JournalOperation {
+    PUT, DELETE, CLEAR, VIEW
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.server.KVTaskClient;
+import ru.yandex.practicum.tasktracker.service.exception.ManagerSaveException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+// sends writes to the KV server in the background: different keys concurrently, the writes of one key one at a time
+// in order. With coalescing a key's waiting writes are sent as just the latest one, the others complete with it.
+// At most maxOutstandingWrites wait or are in flight, a further write blocks its caller until one completes
+class KVWriteQueue {
+    private final KVTaskClient client;
+    private final boolean coalescing;
+    private final Semaphore outstandingWrites;
+    private final Map<String, KeyWrites> writesByKey = new HashMap<>();
+
+    KVWriteQueue(KVTaskClient client, int maxOutstandingWrites, boolean coalescing) {
+        if (maxOutstandingWrites <= 0) {
+            throw new IllegalArgumentException("Outstanding writes limit must be positive: " + maxOutstandingWrites);
+        }
+        this.client = client;
+        this.coalescing = coalescing;
+        outstandingWrites = new Semaphore(maxOutstandingWrites);
+    }
+
+    CompletableFuture<Void> write(String key, String json) {
+        try {
+            outstandingWrites.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Interrupted while waiting to save data", e);
+        }
+        Write write = new Write(json);
+        synchronized (this) {
+            KeyWrites keyWrites = writesByKey.computeIfAbsent(key, KeyWrites::new);
+            keyWrites.waiting.add(write);
+            keyWrites.last = write.written;
+            if (!keyWrites.sending) {
+                sendNext(keyWrites);
+            }
+        }
+        return write.written;
+    }
+
+    // completes when every write queued so far has completed
+    synchronized CompletableFuture<Void> flush() {
+        return CompletableFuture.allOf(writesByKey.values().stream()
+                .map(keyWrites -> keyWrites.last.exceptionally(e -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    // must be called holding the monitor
+    private void sendNext(KeyWrites keyWrites) {
+        if (keyWrites.waiting.isEmpty()) {
+            keyWrites.sending = false;
+            return;
+        }
+        keyWrites.sending = true;
+        List<Write> sent = new ArrayList<>();
+        do {
+            sent.add(keyWrites.waiting.remove());
+        } while (coalescing && !keyWrites.waiting.isEmpty());
+        String json = sent.get(sent.size() - 1).json;
+        client.putAsync(keyWrites.key, json).whenComplete((result, e) -> {
+            if (e != null) {
+                System.out.println("Failed to save data");
+            }
+            for (Write write : sent) {
+                if (e == null) {
+                    write.written.complete(null);
+                } else {
+                    write.written.completeExceptionally(e);
+                }
+            }
+            outstandingWrites.release(sent.size());
+            synchronized (this) {
+                sendNext(keyWrites);
+            }
+        });
+    }
+
+    private static class KeyWrites {
+        final String key;
+        final Queue<Write> waiting = new ArrayDeque<>();
+        boolean sending;
+        // completes after every earlier write of the key
+        CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+
+        KeyWrites(String key) {
+            this.key = key;
+        }
+    }
+
+    private static class Write {
+        final String json;
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        Write(String json) {
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Epic;
+import ru.yandex.practicum.tasktracker.model.Subtask;
+import ru.yandex.practicum.tasktracker.model.Task;
+import ru.yandex.practicum.tasktracker.model.TaskStatus;
+import ru.yandex.practicum.tasktracker.model.TaskType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// parses the CSV snapshot straight from a (memory-mapped) buffer, only names and descriptions become Strings
+public class MappedCsvSnapshotReader {
+    private static final byte[] NULL_VALUE = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEADER_PREFIX = "id,".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COMMENT_PREFIX = "#".getBytes(StandardCharsets.US_ASCII);
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final byte[][] TYPE_NAMES = enumNames(TYPES);
+    private static final byte[][] STATUS_NAMES = enumNames(STATUSES);
+    private static final int MIN_CHUNK_BYTES = 64 * 1024;
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final boolean checksummed;
+    private boolean lazyDescriptions;
+    private int position;
+    private int tornRowCount;
+    // id, offset and length of every description left in the buffer
+    private int[] descriptionSpans = new int[0];
+    private int descriptionSpansSize;
+    private List<Integer> history = List.of();
+
+    public MappedCsvSnapshotReader(ByteBuffer buffer) {
+        this(buffer, buffer.position(), buffer.limit(), false, false);
+    }
+
+    private MappedCsvSnapshotReader(ByteBuffer buffer, int start, int limit, boolean checksummed,
+                                    boolean lazyDescriptions) {
+        this.buffer = buffer;
+        this.position = start;
+        this.limit = limit;
+        this.checksummed = checksummed;
+        this.lazyDescriptions = lazyDescriptions;
+    }
+
+    // rows get no description, its position in the buffer is reported by getDescriptionSpans() instead
+    public void setLazyDescriptions(boolean lazyDescriptions) {
+        this.lazyDescriptions = lazyDescriptions;
+    }
+
+    public int[] getDescriptionSpans() {
+        return Arrays.copyOf(descriptionSpans, descriptionSpansSize);
+    }
+
+    public List<Integer> getHistory() {
+        return history;
+    }
+
+    public int getTornRowCount() {
+        return tornRowCount;
+    }
+
+    // returns the rows in file order, chunks of a large file are parsed in parallel on the common pool
+    public List<Task> read() {
+        int rowsEnd = findHistorySeparator();
+        List<Task> rows = readChunks(rowsEnd);
+        position = Math.min(rowsEnd, limit);
+        if (position < limit) {
+            position = lineEnd() + 1;
+            history = readHistory();
+        }
+        return rows;
+    }
+
+    // for the fixed-width layout, where blank lines are free slots and the history is kept elsewhere;
+    // every line ends with a RecordChecksum, lines that do not match it are skipped and counted as torn
+    public List<Task> readChecksummedRows() {
+        MappedCsvSnapshotReader reader = new MappedCsvSnapshotReader(buffer, position, limit, true,
+                lazyDescriptions);
+        List<Task> rows = reader.readChunks(limit);
+        tornRowCount = reader.tornRowCount;
+        descriptionSpans = reader.descriptionSpans;
+        descriptionSpansSize = reader.descriptionSpansSize;
+        return rows;
+    }
+
+    private List<Task> readChunks(int rowsEnd) {
+        int chunkCount = (int) Math.min(ForkJoinPool.getCommonPoolParallelism() * 4L,
+                Math.max(1, (rowsEnd - position) / MIN_CHUNK_BYTES));
+        int[] chunkStarts = new int[chunkCount + 1];
+        chunkStarts[0] = position;
+        for (int i = 1; i < chunkCount; i++) {
+            position = Math.max(chunkStarts[i - 1], chunkStarts[0] + (int) ((long) (rowsEnd - chunkStarts[0]) * i
+                    / chunkCount));
+            chunkStarts[i] = Math.min(lineEnd() + 1, rowsEnd);
+        }
+        chunkStarts[chunkCount] = rowsEnd;
+        MappedCsvSnapshotReader[] chunks = new MappedCsvSnapshotReader[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i] = new MappedCsvSnapshotReader(buffer, chunkStarts[i], chunkStarts[i + 1], checksummed,
+                    lazyDescriptions);
+        }
+        List<Task> rows;
+        if (chunkCount == 1) {
+            rows = chunks[0].readRows();
+        } else {
+            rows = IntStream.range(0, chunkCount).parallel()
+                    .mapToObj(i -> chunks[i].readRows())
+                    .flatMap(List::stream)
+                    .toList();
+        }
+        for (MappedCsvSnapshotReader chunk : chunks) {
+            tornRowCount += chunk.tornRowCount;
+            for (int i = 0; i < chunk.descriptionSpansSize; i += 3) {
+                addDescriptionSpan(chunk.descriptionSpans[i], chunk.descriptionSpans[i + 1],
+                        chunk.descriptionSpans[i + 2]);
+            }
+        }
+        return rows;
+    }
+
+    private List<Task> readRows() {
+        List<Task> rows = new ArrayList<>();
+        while (position < limit) {
+            int lineEnd = lineEnd();
+            int rowEnd = lineEnd;
+            if (checksummed) {
+                if (lineEnd == limit || !RecordChecksum.matches(buffer, position, lineEnd)) {
+                    tornRowCount++;
+                    position = lineEnd + 1;
+                    continue;
+                }
+                rowEnd = lineEnd - RecordChecksum.LENGTH;
+            }
+            if (!startsWith(HEADER_PREFIX, rowEnd) && !startsWith(COMMENT_PREFIX, rowEnd) && !isBlank(rowEnd)) {
+                rows.add(readTask(rowEnd));
+            }
+            position = lineEnd + 1;
+        }
+        return rows;
+    }
+
+    // the history line follows the last blank line, rows never are blank
+    private int findHistorySeparator() {
+        int lineEnd = limit;
+        if (lineEnd > position && buffer.get(lineEnd - 1) == '\n') {
+            lineEnd--;
+        }
+        while (lineEnd >= position) {
+            int lineStart = lineEnd;
+            while (lineStart > position && buffer.get(lineStart - 1) != '\n') {
+                lineStart--;
+            }
+            int savedPosition = position;
+            position = lineStart;
+            boolean blank = isBlank(lineEnd);
+            position = savedPosition;
+            if (blank) {
+                return lineStart;
+            }
+            lineEnd = lineStart - 1;
+        }
+        return limit;
+    }
+
+    private Task readTask(int lineEnd) {
+        int id = (int) readLong(fieldEnd(lineEnd));
+        TaskType type = TYPES[readEnum(TYPE_NAMES, fieldEnd(lineEnd))];
+        Task task = switch (type) {
+            case TASK -> new Task();
+            case SUBTASK -> new Subtask();
+            case EPIC -> new Epic();
+        };
+        task.setId(id);
+        task.setName(readString(fieldEnd(lineEnd)));
+        task.setStatus(STATUSES[readEnum(STATUS_NAMES, fieldEnd(lineEnd))]);
+        int descriptionEnd = fieldEnd(lineEnd);
+        if (lazyDescriptions && !matches(NULL_VALUE, descriptionEnd)) {
+            addDescriptionSpan(id, position, descriptionEnd - position);
+            skipSeparator(descriptionEnd);
+        } else {
+            task.setDescription(readNullableString(descriptionEnd));
+        }
+        task.setStartTime(readTime(fieldEnd(lineEnd)));
+        task.setDuration(readLong(fieldEnd(lineEnd)));
+        int endTimeEnd = fieldEnd(lineEnd);
+        if (task instanceof Epic epic) {
+            epic.setEndTime(readTime(endTimeEnd));
+        } else {
+            position = Math.min(endTimeEnd + 1, lineEnd);
+        }
+        if (task instanceof Subtask subtask) {
+            subtask.setEpicId((int) readLong(fieldEnd(lineEnd)));
+        }
+        return task;
+    }
+
+    private void addDescriptionSpan(int id, int offset, int length) {
+        if (descriptionSpansSize + 3 > descriptionSpans.length) {
+            descriptionSpans = Arrays.copyOf(descriptionSpans, Math.max(descriptionSpansSize * 2, 48));
+        }
+        descriptionSpans[descriptionSpansSize++] = id;
+        descriptionSpans[descriptionSpansSize++] = offset;
+        descriptionSpans[descriptionSpansSize++] = length;
+    }
+
+    private List<Integer> readHistory() {
+        List<Integer> history = new ArrayList<>();
+        int lineEnd = lineEnd();
+        while (position < lineEnd && !isBlank(lineEnd)) {
+            history.add((int) readLong(fieldEnd(lineEnd)));
+        }
+        return history;
+    }
+
+    private int lineEnd() {
+        int end = position;
+        while (end < limit && buffer.get(end) != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    private int fieldEnd(int lineEnd) {
+        int end = position;
+        while (end < lineEnd && buffer.get(end) != ',') {
+            end++;
+        }
+        // the last field may end with '\r' of a CRLF line ending or with fixed-width padding
+        if (end == lineEnd) {
+            while (end > position && (buffer.get(end - 1) == '\r' || buffer.get(end - 1) == ' ')) {
+                end--;
+            }
+        }
+        return end;
+    }
+
+    // all read* methods consume the field up to end and the separator after it
+    private long readLong(int end) {
+        long value = 0;
+        boolean negative = buffer.get(position) == '-';
+        for (int i = negative ? position + 1 : position; i < end; i++) {
+            value = value * 10 + (buffer.get(i) - '0');
+        }
+        skipSeparator(end);
+        return negative ? -value : value;
+    }
+
+    private int readEnum(byte[][] names, int end) {
+        for (int i = 0; i < names.length; i++) {
+            if (matches(names[i], end)) {
+                skipSeparator(end);
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown value " + readString(end));
+    }
+
+    private String readString(int end) {
+        byte[] bytes = new byte[end - position];
+        buffer.get(position, bytes);
+        skipSeparator(end);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String readNullableString(int end) {
+        if (matches(NULL_VALUE, end)) {
+            skipSeparator(end);
+            return null;
+        }
+        return readString(end);
+    }
+
+    // accepts LocalDateTime.toString() output: yyyy-MM-ddTHH:mm with optional seconds and fraction
+    private LocalDateTime readTime(int end) {
+        if (matches(NULL_VALUE, end)) {
+            skipSeparator(end);
+            return null;
+        }
+        int start = position;
+        int length = end - start;
+        if (length != 16 && length != 19) {
+            return LocalDateTime.parse(readString(end));
+        }
+        LocalDateTime time = LocalDateTime.of(digits(start, 4), digits(start + 5, 2), digits(start + 8, 2),
+                digits(start + 11, 2), digits(start + 14, 2), length == 19 ? digits(start + 17, 2) : 0);
+        skipSeparator(end);
+        return time;
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            value = value * 10 + (buffer.get(i) - '0');
+        }
+        return value;
+    }
+
+    private void skipSeparator(int end) {
+        position = end < limit && buffer.get(end) == ',' ? end + 1 : end;
+    }
+
+    private boolean matches(byte[] value, int end) {
+        return end - position == value.length && startsWith(value, end);
+    }
+
+    private boolean startsWith(byte[] prefix, int end) {
+        if (end - position < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(position + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isBlank(int lineEnd) {
+        for (int i = position; i < lineEnd; i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\r' && b != '\t' && b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[][] enumNames(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
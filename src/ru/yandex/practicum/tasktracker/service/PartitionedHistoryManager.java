@@ -0,0 +1,147 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Task;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// the shared history, which is persisted, plus a bounded history per client: a view also goes to the partition
+// of the client the current thread serves. Partitions preallocate their capacity, so memory is capped globally
+// by the number of partitions, the least recently active client is dropped beyond it. Every partition and the
+// shared history have their own monitor, unless the shared one is thread-safe itself
+public class PartitionedHistoryManager implements HistoryManager {
+    public static final int DEFAULT_PARTITION_CAPACITY = 100;
+    public static final int DEFAULT_MAX_TRACKED_VIEWS = 100_000;
+    private static final ThreadLocal<String> currentClient = new ThreadLocal<>();
+
+    private final HistoryManager history;
+    private final int partitionCapacity;
+    private final int maxPartitions;
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    // orders the activity of the partitions
+    private final AtomicLong clock = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    public PartitionedHistoryManager(HistoryManager history) {
+        this(history, DEFAULT_PARTITION_CAPACITY, DEFAULT_MAX_TRACKED_VIEWS);
+    }
+
+    public PartitionedHistoryManager(HistoryManager history, int partitionCapacity, int maxTrackedViews) {
+        if (partitionCapacity <= 0 || maxTrackedViews < partitionCapacity) {
+            throw new IllegalArgumentException("Partition capacity must be positive and fit into the views cap");
+        }
+        this.history = history;
+        this.partitionCapacity = partitionCapacity;
+        maxPartitions = maxTrackedViews / partitionCapacity;
+    }
+
+    // the client whose views the current thread records, null for none
+    public static void setCurrentClient(String clientId) {
+        if (clientId == null) {
+            currentClient.remove();
+        } else {
+            currentClient.set(clientId);
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        if (history.isThreadSafe()) {
+            history.add(task);
+        } else {
+            synchronized (history) {
+                history.add(task);
+            }
+        }
+        String clientId = currentClient.get();
+        if (clientId == null) {
+            return;
+        }
+        Partition partition = partitions.computeIfAbsent(clientId, id -> new Partition(partitionCapacity));
+        partition.lastActive = clock.incrementAndGet();
+        synchronized (partition) {
+            partition.history.add(task);
+        }
+        if (partitions.size() > maxPartitions) {
+            evictLeastRecentlyActive();
+        }
+    }
+
+    @Override
+    public void remove(int taskId) {
+        if (history.isThreadSafe()) {
+            history.remove(taskId);
+        } else {
+            synchronized (history) {
+                history.remove(taskId);
+            }
+        }
+        for (Partition partition : partitions.values()) {
+            synchronized (partition) {
+                partition.history.remove(taskId);
+            }
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        if (history.isThreadSafe()) {
+            return history.getHistory();
+        }
+        synchronized (history) {
+            return history.getHistory();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(String clientId) {
+        if (clientId == null) {
+            return getHistory();
+        }
+        Partition partition = partitions.get(clientId);
+        if (partition == null) {
+            return Collections.emptyList();
+        }
+        partition.lastActive = clock.incrementAndGet();
+        // the bounded history hands out a list it never modifies
+        synchronized (partition) {
+            return partition.history.getHistory();
+        }
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    int partitionCount() {
+        return partitions.size();
+    }
+
+    // a scan over all partitions, but only when a new client pushes the count past the cap
+    private void evictLeastRecentlyActive() {
+        synchronized (evictionLock) {
+            while (partitions.size() > maxPartitions) {
+                Map.Entry<String, Partition> eldest = null;
+                for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+                    if (eldest == null || entry.getValue().lastActive < eldest.getValue().lastActive) {
+                        eldest = entry;
+                    }
+                }
+                partitions.remove(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+
+    private static class Partition {
+        final BoundedHistoryManager history;
+        volatile long lastActive;
+
+        Partition(int capacity) {
+            history = new BoundedHistoryManager(capacity);
+        }
+    }
+}
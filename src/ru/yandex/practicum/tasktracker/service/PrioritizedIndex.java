@@ -0,0 +1,180 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Task;
+import ru.yandex.practicum.tasktracker.utils.IntObjectMap;
+
+import java.time.LocalDateTime;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+// the tasks of one type by start time and id, tasks without start time last; the order keeps the start time
+// a task had when it was added, so a task changed in place is still found and removed by its id
+class PrioritizedIndex implements Iterable<Task> {
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator.comparing((Entry entry) -> entry.startTime,
+            Comparator.nullsLast(Comparator.naturalOrder())).thenComparingInt(entry -> entry.id);
+    private final TreeSet<Entry> entries;
+    private final IntObjectMap<Entry> entriesById = new IntObjectMap<>();
+
+    PrioritizedIndex() {
+        entries = new TreeSet<>(ENTRY_ORDER);
+    }
+
+    // in linear time, the tasks must already be sorted by start time and id
+    PrioritizedIndex(List<Task> sortedTasks) {
+        List<Entry> sortedEntries = new ArrayList<>(sortedTasks.size());
+        for (Task task : sortedTasks) {
+            Entry entry = new Entry(task);
+            sortedEntries.add(entry);
+            entriesById.put(entry.id, entry);
+        }
+        // TreeSet builds the tree without comparisons from a SortedSet with the same comparator
+        entries = new TreeSet<>(new SortedEntryList(sortedEntries));
+    }
+
+    void add(Task task) {
+        remove(task.getId());
+        Entry entry = new Entry(task);
+        entries.add(entry);
+        entriesById.put(entry.id, entry);
+    }
+
+    void remove(int taskId) {
+        Entry entry = entriesById.remove(taskId);
+        if (entry != null) {
+            entries.remove(entry);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        Iterator<Entry> iterator = entries.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                return iterator.next().task;
+            }
+        };
+    }
+
+    // one ordered list of the tasks of all the indexes in O(n log k)
+    static List<Task> merge(Collection<PrioritizedIndex> indexes) {
+        List<Task> merged = new ArrayList<>();
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(head -> head.entry, ENTRY_ORDER));
+        for (PrioritizedIndex index : indexes) {
+            Iterator<Entry> iterator = index.entries.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head(iterator.next(), iterator));
+            }
+        }
+        while (!heads.isEmpty()) {
+            Head head = heads.poll();
+            merged.add(head.entry.task);
+            if (head.iterator.hasNext()) {
+                heads.add(new Head(head.iterator.next(), head.iterator));
+            }
+        }
+        return merged;
+    }
+
+    private static class Entry {
+        final Task task;
+        final int id;
+        final LocalDateTime startTime;
+
+        Entry(Task task) {
+            this.task = task;
+            this.id = task.getId();
+            this.startTime = task.getStartTime();
+        }
+    }
+
+    private static class Head {
+        final Entry entry;
+        final Iterator<Entry> iterator;
+
+        Head(Entry entry, Iterator<Entry> iterator) {
+            this.entry = entry;
+            this.iterator = iterator;
+        }
+    }
+
+    // a read-only view of a sorted list, only handed to the TreeSet constructor
+    private static class SortedEntryList extends AbstractSet<Entry> implements SortedSet<Entry> {
+        private final List<Entry> entries;
+
+        SortedEntryList(List<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public Iterator<Entry> iterator() {
+            return entries.iterator();
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public Comparator<? super Entry> comparator() {
+            return ENTRY_ORDER;
+        }
+
+        @Override
+        public Entry first() {
+            if (entries.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return entries.get(0);
+        }
+
+        @Override
+        public Entry last() {
+            if (entries.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return entries.get(entries.size() - 1);
+        }
+
+        @Override
+        public SortedSet<Entry> subSet(Entry fromElement, Entry toElement) {
+            int from = insertionPoint(fromElement);
+            return new SortedEntryList(entries.subList(from, Math.max(from, insertionPoint(toElement))));
+        }
+
+        @Override
+        public SortedSet<Entry> headSet(Entry toElement) {
+            return new SortedEntryList(entries.subList(0, insertionPoint(toElement)));
+        }
+
+        @Override
+        public SortedSet<Entry> tailSet(Entry fromElement) {
+            return new SortedEntryList(entries.subList(insertionPoint(fromElement), entries.size()));
+        }
+
+        // the index of the first entry not less than the given one
+        private int insertionPoint(Entry entry) {
+            int index = Collections.binarySearch(entries, entry, ENTRY_ORDER);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
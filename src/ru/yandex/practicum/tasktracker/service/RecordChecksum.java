@@ -0,0 +1,69 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+// CRC32C of a line, written as a tab and 8 hex digits at its end by journal records and fixed-width slots
+final class RecordChecksum {
+    static final int LENGTH = 9;
+    private static final byte SEPARATOR = '\t';
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private RecordChecksum() {
+    }
+
+    static String append(String record) {
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+        return record + (char) SEPARATOR + new String(toHex(crc32c(ByteBuffer.wrap(bytes))), StandardCharsets.US_ASCII);
+    }
+
+    // the record without its checksum, null if the checksum is missing or does not match
+    static String strip(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        if (!matches(ByteBuffer.wrap(bytes), 0, bytes.length)) {
+            return null;
+        }
+        return new String(bytes, 0, bytes.length - LENGTH, StandardCharsets.UTF_8);
+    }
+
+    // writes the checksum of target[0, target.length - LENGTH) into its last LENGTH bytes
+    static void fill(byte[] target) {
+        int contentEnd = target.length - LENGTH;
+        target[contentEnd] = SEPARATOR;
+        System.arraycopy(toHex(crc32c(ByteBuffer.wrap(target, 0, contentEnd))), 0, target, contentEnd + 1,
+                LENGTH - 1);
+    }
+
+    // checks the line [start, end) of the buffer, its last LENGTH bytes being the checksum
+    static boolean matches(ByteBuffer buffer, int start, int end) {
+        int contentEnd = end - LENGTH;
+        if (contentEnd < start || buffer.get(contentEnd) != SEPARATOR) {
+            return false;
+        }
+        int expected = 0;
+        for (int i = contentEnd + 1; i < end; i++) {
+            int digit = Character.digit(buffer.get(i), 16);
+            if (digit < 0) {
+                return false;
+            }
+            expected = expected << 4 | digit;
+        }
+        return crc32c(buffer.slice(start, contentEnd - start)) == expected;
+    }
+
+    private static int crc32c(ByteBuffer content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] toHex(int value) {
+        byte[] hex = new byte[LENGTH - 1];
+        for (int i = hex.length - 1; i >= 0; i--) {
+            hex[i] = HEX_DIGITS[value & 0xF];
+            value >>>= 4;
+        }
+        return hex;
+    }
+}
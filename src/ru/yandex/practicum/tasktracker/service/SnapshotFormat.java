@@ -0,0 +1,5 @@
+package ru.yandex.practicum.tasktracker.service;
+
+public enum SnapshotFormat {
+    CSV, BINARY, FIXED_WIDTH
+}
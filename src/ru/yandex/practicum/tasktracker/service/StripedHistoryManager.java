@@ -0,0 +1,146 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Task;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// views are appended to one of several small buffers picked by thread, so concurrent readers rarely share a lock,
+// and merged into the wrapped history in the order they happened: by the recording thread that fills a buffer
+// past the threshold and finds the merge lock free, and always before the history is read or changed otherwise.
+// At most stripes * buffer size views are pending, getHistory never sees them stale
+public class StripedHistoryManager implements HistoryManager {
+    private static final int DEFAULT_BUFFER_SIZE = 64;
+
+    private final HistoryManager history;
+    private final Stripe[] stripes;
+    private final int drainThreshold;
+    // stamped under the stripe lock, so while all stripe locks are held every stamped view is in a buffer
+    private final AtomicLong sequence = new AtomicLong();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    // the buffered views of one merge by sequence, they are exactly the stamps since the previous merge
+    private final Task[] ordered;
+    private long merged;
+
+    public StripedHistoryManager(HistoryManager history) {
+        this(history, Runtime.getRuntime().availableProcessors() * 2, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StripedHistoryManager(HistoryManager history, int stripeCount, int bufferSize) {
+        if (stripeCount <= 0 || bufferSize <= 0) {
+            throw new IllegalArgumentException("Stripe count and buffer size must be positive");
+        }
+        this.history = history;
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(bufferSize);
+        }
+        drainThreshold = Math.max(1, bufferSize / 2);
+        ordered = new Task[stripeCount * bufferSize];
+    }
+
+    @Override
+    public void add(Task task) {
+        Stripe stripe = stripes[Math.floorMod(Long.hashCode(Thread.currentThread().getId() * 0x9E3779B97F4A7C15L),
+                stripes.length)];
+        int buffered;
+        while ((buffered = stripe.record(task)) < 0) {
+            drainLock.lock();
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+        // whoever else is merging takes this buffer along
+        if (buffered >= drainThreshold && drainLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void remove(int taskId) {
+        drainLock.lock();
+        try {
+            drain();
+            history.remove(taskId);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drain();
+            return history.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    // must be called with the drain lock held
+    private void drain() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            for (Stripe stripe : stripes) {
+                for (int i = 0; i < stripe.size; i++) {
+                    ordered[(int) (stripe.sequences[i] - merged)] = stripe.tasks[i];
+                    stripe.tasks[i] = null;
+                }
+                count += stripe.size;
+                stripe.size = 0;
+            }
+        } finally {
+            for (Stripe stripe : stripes) {
+                stripe.lock.unlock();
+            }
+        }
+        merged += count;
+        for (int i = 0; i < count; i++) {
+            history.add(ordered[i]);
+            ordered[i] = null;
+        }
+    }
+
+    private class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Task[] tasks;
+        final long[] sequences;
+        int size;
+
+        Stripe(int bufferSize) {
+            tasks = new Task[bufferSize];
+            sequences = new long[bufferSize];
+        }
+
+        // the number of buffered views, or -1 when the buffer is full and has to be merged first
+        int record(Task task) {
+            lock.lock();
+            try {
+                if (size == tasks.length) {
+                    return -1;
+                }
+                tasks[size] = task;
+                sequences[size] = sequence.getAndIncrement();
+                return ++size;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
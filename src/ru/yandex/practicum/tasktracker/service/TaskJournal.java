@@ -0,0 +1,162 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.service.exception.ManagerSaveException;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TaskJournal {
+    private final Path path;
+    private FileOutputStream output;
+    private BufferedWriter writer;
+    private int recordCount;
+
+    public TaskJournal(String path) {
+        this.path = Path.of(path);
+    }
+
+    // the record stays buffered in memory until the next flush
+    public synchronized void append(String record) {
+        try {
+            if (writer == null) {
+                output = new FileOutputStream(path.toFile(), true);
+                writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            }
+            writer.write(RecordChecksum.append(record));
+            writer.newLine();
+            recordCount++;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to append to journal", e);
+        }
+    }
+
+    public synchronized void flush(boolean force) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            if (force) {
+                output.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to flush journal", e);
+        }
+    }
+
+    // a torn write leaves damaged records only at the end: a tail of incomplete lines or bad checksums is
+    // truncated, a valid record after a damaged one means the journal is corrupted
+    public synchronized List<String> readRecords() {
+        if (!exists()) {
+            return List.of();
+        }
+        try {
+            byte[] data = Files.readAllBytes(path);
+            List<String> records = new ArrayList<>();
+            int validLength = 0;
+            int damagedStart = -1;
+            int lineStart = 0;
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] != '\n') {
+                    continue;
+                }
+                String line = new String(data, lineStart, i - lineStart, StandardCharsets.UTF_8).stripTrailing();
+                if (!line.isBlank()) {
+                    String record = RecordChecksum.strip(line);
+                    if (record == null) {
+                        damagedStart = damagedStart < 0 ? lineStart : damagedStart;
+                    } else if (damagedStart >= 0) {
+                        throw new ManagerSaveException("Journal " + path + " is corrupted at byte " + damagedStart);
+                    } else {
+                        records.add(record);
+                    }
+                }
+                lineStart = i + 1;
+                if (damagedStart < 0) {
+                    validLength = lineStart;
+                }
+            }
+            if (validLength < data.length) {
+                close();
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+            }
+            recordCount = records.size();
+            return records;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to read journal", e);
+        }
+    }
+
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized long size() {
+        try {
+            return exists() ? Files.size(path) : 0;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to read journal size", e);
+        }
+    }
+
+    // moves all records to the target journal, appending them if the target already has records
+    public synchronized void transferTo(TaskJournal target) {
+        close();
+        target.close();
+        if (!exists()) {
+            return;
+        }
+        try {
+            if (target.exists()) {
+                Files.write(target.path, Files.readAllBytes(path), StandardOpenOption.APPEND);
+                Files.delete(path);
+            } else {
+                Files.move(path, target.path, StandardCopyOption.ATOMIC_MOVE);
+            }
+            target.recordCount += recordCount;
+            recordCount = 0;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to transfer journal", e);
+        }
+    }
+
+    public synchronized void delete() {
+        close();
+        recordCount = 0;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to delete journal", e);
+        }
+    }
+
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to close journal", e);
+        } finally {
+            writer = null;
+            output = null;
+        }
+    }
+}
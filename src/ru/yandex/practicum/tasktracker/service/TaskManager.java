@@ -4,6 +4,8 @@ import ru.yandex.practicum.tasktracker.model.Epic;
 import ru.yandex.practicum.tasktracker.model.Subtask;
 import ru.yandex.practicum.tasktracker.model.Task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface TaskManager {
@@ -14,8 +16,23 @@ public interface TaskManager {
 
     List<Epic> getAllEpics();
 
+    // tasks and subtasks whose [startTime, endTime) overlaps [from, to), ordered by start time
+    List<Task> getTasksOverlapping(LocalDateTime from, LocalDateTime to);
+
+    // start times of up to count earliest non-overlapping free slots of the duration inside [from, to)
+    List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int count);
+
+    // gives free slots inside [from, to) to the tasks and subtasks without a start time, longest first,
+    // only to the subtasks of the epic unless epicId is null; returns the tasks that got a start time
+    List<Task> autoSchedule(Integer epicId, LocalDateTime from, LocalDateTime to);
+
+    TaskSnapshot getSnapshot();
+
     List<Task> getHistory();
 
+    // the views recorded while serving the client, the shared history for null
+    List<Task> getHistory(String clientId);
+
     List<Subtask> getSubtasksByEpicId(int epicId);
 
     void deleteAllTasks();
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import ru.yandex.practicum.tasktracker.model.Epic;
+import ru.yandex.practicum.tasktracker.model.Subtask;
+import ru.yandex.practicum.tasktracker.model.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+// immutable lists of the manager state at one version, shared by all readers until the next mutation;
+// the snapshot is shallow: the entities are the manager's own objects, which epic updates and auto-scheduling
+// change in place, so a reader keeping an old snapshot sees the entities of that version with their current
+// fields, never entities added or removed after it
+public final class TaskSnapshot {
+    private final long version;
+    private final List<Task> tasks;
+    private final List<Subtask> subtasks;
+    private final List<Epic> epics;
+    private final List<Task> prioritizedTasks;
+
+    TaskSnapshot(long version, Collection<Task> tasks, Collection<Subtask> subtasks, Collection<Epic> epics,
+                 Collection<Task> prioritizedTasks) {
+        this.version = version;
+        this.tasks = List.copyOf(tasks);
+        this.subtasks = List.copyOf(subtasks);
+        this.epics = List.copyOf(epics);
+        this.prioritizedTasks = List.copyOf(prioritizedTasks);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public List<Subtask> getSubtasks() {
+        return subtasks;
+    }
+
+    public List<Epic> getEpics() {
+        return epics;
+    }
+
+    public List<Task> getPrioritizedTasks() {
+        return prioritizedTasks;
+    }
+}
@@ -0,0 +1,172 @@
+package ru.yandex.practicum.tasktracker.utils;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+// open addressing set of ints in one flat array; 0 marks a free slot, so a contained 0 is kept in a flag
+public class IntSet extends AbstractSet<Integer> {
+    private static final int MIN_CAPACITY = 16;
+    private int[] elements = new int[MIN_CAPACITY];
+    private boolean containsZero;
+    private int size;
+
+    public boolean add(int element) {
+        if (element == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = elements.length - 1;
+        int slot = IntObjectMap.hash(element) & mask;
+        while (elements[slot] != 0) {
+            if (elements[slot] == element) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        elements[slot] = element;
+        if (++size > elements.length * 3 / 4) {
+            resize(elements.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(int element) {
+        return element == 0 ? containsZero : find(element) >= 0;
+    }
+
+    // shifts the following elements of the probe sequence back instead of leaving a tombstone
+    public boolean remove(int element) {
+        if (element == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int slot = find(element);
+        if (slot < 0) {
+            return false;
+        }
+        int mask = elements.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (elements[next] != 0) {
+            int home = IntObjectMap.hash(elements[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                elements[gap] = elements[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        elements[gap] = 0;
+        size--;
+        return true;
+    }
+
+    public void forEachInt(IntConsumer action) {
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (int element : elements) {
+            if (element != 0) {
+                action.accept(element);
+            }
+        }
+    }
+
+    @Override
+    public boolean add(Integer element) {
+        return add(element.intValue());
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return element instanceof Integer id && contains(id.intValue());
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        return element instanceof Integer id && remove(id.intValue());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        elements = new int[MIN_CAPACITY];
+        containsZero = false;
+        size = 0;
+    }
+
+    // read-only, like the views of IntObjectMap
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private boolean zeroPending = containsZero;
+            private int slot = advance(0);
+
+            @Override
+            public boolean hasNext() {
+                return zeroPending || slot < elements.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (zeroPending) {
+                    zeroPending = false;
+                    return 0;
+                }
+                if (slot >= elements.length) {
+                    throw new NoSuchElementException();
+                }
+                int element = elements[slot];
+                slot = advance(slot + 1);
+                return element;
+            }
+
+            private int advance(int from) {
+                while (from < elements.length && elements[from] == 0) {
+                    from++;
+                }
+                return from;
+            }
+        };
+    }
+
+    private int find(int element) {
+        int mask = elements.length - 1;
+        int slot = IntObjectMap.hash(element) & mask;
+        while (elements[slot] != 0) {
+            if (elements[slot] == element) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldElements = elements;
+        elements = new int[capacity];
+        int mask = capacity - 1;
+        for (int element : oldElements) {
+            if (element != 0) {
+                int slot = IntObjectMap.hash(element) & mask;
+                while (elements[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                elements[slot] = element;
+            }
+        }
+    }
+}
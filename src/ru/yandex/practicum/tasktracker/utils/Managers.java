@@ -3,13 +3,18 @@ package ru.yandex.practicum.tasktracker.utils;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import ru.yandex.practicum.tasktracker.adapter.DurationAdapter;
+import ru.yandex.practicum.tasktracker.adapter.LazyDescriptionAdapterFactory;
 import ru.yandex.practicum.tasktracker.adapter.LocalDateTimeAdapter;
 import ru.yandex.practicum.tasktracker.service.HttpTaskManager;
 import ru.yandex.practicum.tasktracker.server.KVServer;
+import ru.yandex.practicum.tasktracker.service.BoundedHistoryManager;
 import ru.yandex.practicum.tasktracker.service.FileBackedTasksManager;
 import ru.yandex.practicum.tasktracker.service.HistoryManager;
 import ru.yandex.practicum.tasktracker.service.InMemoryHistoryManager;
 import ru.yandex.practicum.tasktracker.service.InMemoryTaskManager;
+import ru.yandex.practicum.tasktracker.service.JournalCompactor;
+import ru.yandex.practicum.tasktracker.service.PartitionedHistoryManager;
+import ru.yandex.practicum.tasktracker.service.StripedHistoryManager;
 import ru.yandex.practicum.tasktracker.service.TaskManager;
 
 import java.io.IOException;
@@ -21,6 +26,7 @@ public final class Managers {
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter().nullSafe())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapterFactory(new LazyDescriptionAdapterFactory())
             .create();
 
     public static TaskManager getDefault() throws IOException, InterruptedException {
@@ -28,13 +34,28 @@ public final class Managers {
     }
 
     public static HistoryManager getDefaultHistory() {
-        return new InMemoryHistoryManager();
+        return new PartitionedHistoryManager(getConcurrentHistory());
+    }
+
+    public static HistoryManager getBoundedHistory(int capacity) {
+        return new BoundedHistoryManager(capacity);
+    }
+
+    public static HistoryManager getConcurrentHistory() {
+        return new StripedHistoryManager(new InMemoryHistoryManager());
     }
 
     public static TaskManager getFileBackedTasksManager() {
         return new FileBackedTasksManager(getDefaultHistory(), PATH_SAVE_FILE);
     }
 
+    public static FileBackedTasksManager getJournaledTasksManager() {
+        FileBackedTasksManager tasksManager = new FileBackedTasksManager(getDefaultHistory(), PATH_SAVE_FILE, true);
+        tasksManager.enableCompaction(JournalCompactor.DEFAULT_MAX_JOURNAL_BYTES,
+                JournalCompactor.DEFAULT_MAX_JOURNAL_RECORDS, JournalCompactor.DEFAULT_CHECK_PERIOD_MILLIS);
+        return tasksManager;
+    }
+
     public static Gson getGson() {
         return gson;
     }
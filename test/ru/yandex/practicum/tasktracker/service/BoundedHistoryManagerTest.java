@@ -0,0 +1,99 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.tasktracker.model.Task;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedHistoryManagerTest extends InMemoryHistoryManagerTest {
+    private static final int CAPACITY = 16;
+
+    @Override
+    protected HistoryManager createHistoryManager() {
+        return new BoundedHistoryManager(CAPACITY);
+    }
+
+    @Test
+    void add_shouldEvictLeastRecentlyViewedTask_WhenFull() {
+        HistoryManager boundedHistory = new BoundedHistoryManager(3);
+        Task task1 = task(1);
+        Task task2 = task(2);
+        Task task3 = task(3);
+        Task task4 = task(4);
+        boundedHistory.add(task1);
+        boundedHistory.add(task2);
+        boundedHistory.add(task3);
+        boundedHistory.add(task1);
+
+        boundedHistory.add(task4);
+        assertEquals(List.of(task3, task1, task4), boundedHistory.getHistory());
+    }
+
+    @Test
+    void add_shouldReplaceStoredTask_WhenSameIdIsViewedAgain() {
+        Task task1 = task(1);
+        Task changedTask1 = task(1);
+        historyManager.add(task1);
+        historyManager.add(changedTask1);
+
+        assertSame(changedTask1, historyManager.getHistory().get(0));
+    }
+
+    @Test
+    void history_shouldMatchUnboundedHistoryTrimmedToCapacity_AfterRandomViewsAndRemoves() {
+        Random random = new Random(7);
+        HistoryManager unboundedHistory = new InMemoryHistoryManager();
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt(64);
+            if (random.nextInt(5) == 0) {
+                historyManager.remove(id);
+                unboundedHistory.remove(id);
+            } else {
+                Task task = task(id);
+                historyManager.add(task);
+                unboundedHistory.add(task);
+            }
+            List<Task> expected = unboundedHistory.getHistory();
+            // the unbounded history still knows evicted tasks, drop them there too
+            while (expected.size() > CAPACITY) {
+                unboundedHistory.remove(expected.get(0).getId());
+                expected = unboundedHistory.getHistory();
+            }
+            assertEquals(expected, historyManager.getHistory());
+        }
+    }
+
+    @Test
+    void add_shouldNotAllocate() {
+        HistoryManager boundedHistory = new BoundedHistoryManager(1024);
+        Task[] tasks = new Task[4096];
+        for (int id = 0; id < tasks.length; id++) {
+            tasks[id] = task(id);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        // warm up, so the measured run is compiled code
+        for (int i = 0; i < 100_000; i++) {
+            boundedHistory.add(tasks[(i * 31) % tasks.length]);
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1_000_000; i++) {
+            boundedHistory.add(tasks[(i * 31) % tasks.length]);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        // a few bytes of the measuring itself, the linked list would take tens of megabytes here
+        assertTrue(allocated < 64 * 1024, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedHistoryManager(0));
+    }
+}
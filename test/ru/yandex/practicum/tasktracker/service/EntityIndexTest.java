@@ -0,0 +1,72 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.tasktracker.model.Epic;
+import ru.yandex.practicum.tasktracker.model.Subtask;
+import ru.yandex.practicum.tasktracker.model.Task;
+import ru.yandex.practicum.tasktracker.utils.IntObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class EntityIndexTest {
+    private final EntityIndex entityIndex = new EntityIndex();
+
+    @Test
+    void entityIndex_shouldMatchSortedMap_ForSequentialAndFarIds() {
+        Random random = new Random(11);
+        IntObjectMap<Task> tasks = new EntityMap<>(entityIndex);
+        TreeMap<Integer, Task> expected = new TreeMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            // mostly growing ids as the allocator hands them out, some far and negative ones as a client may send
+            int id = switch (random.nextInt(10)) {
+                case 0 -> random.nextInt(1 << 24);
+                case 1 -> -random.nextInt(100);
+                default -> random.nextInt(i + 1);
+            };
+            if (random.nextInt(4) == 0) {
+                tasks.remove(id);
+                expected.remove(id);
+            } else {
+                Task task = createTask(id);
+                tasks.put(id, task);
+                expected.put(id, task);
+            }
+            assertSame(expected.get(id), entityIndex.get(id));
+        }
+        List<Task> inIdOrder = new ArrayList<>();
+        entityIndex.forEach(inIdOrder::add);
+        assertEquals(new ArrayList<>(expected.values()), inIdOrder);
+        assertEquals(expected.size(), entityIndex.size());
+    }
+
+    @Test
+    void remove_shouldKeepEntityOfOtherType_WithSameId() {
+        IntObjectMap<Epic> epics = new EntityMap<>(entityIndex);
+        IntObjectMap<Subtask> subtasks = new EntityMap<>(entityIndex);
+        Epic epic = new Epic();
+        epic.setId(1);
+        epics.put(1, epic);
+        Subtask subtask = new Subtask();
+        subtask.setId(1);
+        subtasks.put(1, subtask);
+
+        epics.remove(1);
+        assertSame(subtask, entityIndex.get(1));
+        subtasks.clear();
+        assertNull(entityIndex.get(1));
+    }
+
+    private Task createTask(int id) {
+        Task task = new Task();
+        task.setId(id);
+        task.setName("Task" + id);
+        return task;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.tasktracker.model.Epic;
+import ru.yandex.practicum.tasktracker.model.Subtask;
+import ru.yandex.practicum.tasktracker.model.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EpicAggregateTest {
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2022, 1, 1, 0, 0);
+
+    private final EpicAggregate epicAggregate = new EpicAggregate();
+
+    @Test
+    void applyTo_shouldMatchFullRecomputation_AfterRandomPutsAndRemoves() {
+        Random random = new Random(17);
+        Map<Integer, Subtask> subtasks = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            int id = random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                epicAggregate.remove(id);
+                subtasks.remove(id);
+            } else {
+                // few distinct times, so equal starts and ends have to be counted
+                Subtask subtask = createSubtask(id, TaskStatus.values()[random.nextInt(3)],
+                        random.nextInt(4) == 0 ? null : START_TIME.plusHours(random.nextInt(20)),
+                        random.nextInt(5) * 30);
+                epicAggregate.put(subtask);
+                subtasks.put(id, subtask);
+            }
+            if (i % 100 == 0) {
+                Epic actual = new Epic();
+                epicAggregate.applyTo(actual);
+                Epic expected = recompute(subtasks);
+                assertEquals(expected.getStatus(), actual.getStatus());
+                assertEquals(expected.getStartTime(), actual.getStartTime());
+                assertEquals(expected.getEndTime(), actual.getEndTime());
+                assertEquals(expected.getDuration(), actual.getDuration());
+            }
+        }
+    }
+
+    // the way the manager computed epics before, over all subtasks
+    private Epic recompute(Map<Integer, Subtask> subtasks) {
+        Epic epic = new Epic();
+        boolean allNew = subtasks.values().stream().allMatch(subtask -> subtask.getStatus() == TaskStatus.NEW);
+        boolean allDone = subtasks.values().stream().allMatch(subtask -> subtask.getStatus() == TaskStatus.DONE);
+        epic.setStatus(allNew ? TaskStatus.NEW : allDone ? TaskStatus.DONE : TaskStatus.IN_PROGRESS);
+        Duration duration = Duration.ZERO;
+        for (Subtask subtask : subtasks.values()) {
+            if (subtask.getStartTime() == null) {
+                continue;
+            }
+            if (epic.getStartTime() == null || subtask.getStartTime().isBefore(epic.getStartTime())) {
+                epic.setStartTime(subtask.getStartTime());
+            }
+            if (epic.getEndTime() == null || subtask.getEndTime().isAfter(epic.getEndTime())) {
+                epic.setEndTime(subtask.getEndTime());
+            }
+            duration = duration.plus(subtask.getDuration());
+        }
+        epic.setDuration(duration.toMinutes());
+        return epic;
+    }
+
+    private Subtask createSubtask(int id, TaskStatus status, LocalDateTime startTime, long duration) {
+        Subtask subtask = new Subtask();
+        subtask.setId(id);
+        subtask.setStatus(status);
+        subtask.setStartTime(startTime);
+        subtask.setDuration(duration);
+        return subtask;
+    }
+}
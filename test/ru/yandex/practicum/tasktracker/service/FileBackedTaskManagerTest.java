@@ -7,19 +7,38 @@ import ru.yandex.practicum.tasktracker.model.Subtask;
 import ru.yandex.practicum.tasktracker.model.Task;
 import ru.yandex.practicum.tasktracker.model.TaskStatus;
 import ru.yandex.practicum.tasktracker.service.exception.ManagerSaveException;
+import ru.yandex.practicum.tasktracker.utils.Managers;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntFunction;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FileBackedTaskManagerTest extends InMemoryTaskManagerTest {
     private static final String PATH_SAVE_FILE_FROM_TEST = "resources/save-manager-test.csv";
     private static final String PATH_LOAD_FILE_FROM_TEST = "resources/load-manager-test.csv";
+    private static final String PATH_JOURNAL_FILE_FROM_TEST = PATH_SAVE_FILE_FROM_TEST + ".log";
+    private static final String PATH_PENDING_JOURNAL_FILE_FROM_TEST = PATH_SAVE_FILE_FROM_TEST + ".log.compacting";
+    private static final String PATH_HISTORY_FILE_FROM_TEST = PATH_SAVE_FILE_FROM_TEST + ".history";
+    private static final String PATH_IDS_FILE_FROM_TEST = PATH_SAVE_FILE_FROM_TEST + ".ids";
+    private static final String PATH_TEMP_FILE_FROM_TEST = PATH_SAVE_FILE_FROM_TEST + ".tmp";
+    private static final String PATH_SLOT_FILE_FROM_TEST = PATH_SAVE_FILE_FROM_TEST + ".slots";
+    private static final String PATH_CONVERTED_FILE_FROM_TEST = "resources/converted-manager-test.bin";
 
     @Override
     protected TaskManager createTaskManager() {
@@ -28,7 +47,16 @@ class FileBackedTaskManagerTest extends InMemoryTaskManagerTest {
 
     @AfterEach
     void clearUp() throws IOException {
+        ((FileBackedTasksManager) taskManager).close();
         Files.write(Path.of(PATH_SAVE_FILE_FROM_TEST), new byte[]{});
+        Files.deleteIfExists(Path.of(PATH_JOURNAL_FILE_FROM_TEST));
+        Files.deleteIfExists(Path.of(PATH_PENDING_JOURNAL_FILE_FROM_TEST));
+        Files.deleteIfExists(Path.of(PATH_HISTORY_FILE_FROM_TEST));
+        Files.deleteIfExists(Path.of(PATH_CONVERTED_FILE_FROM_TEST));
+        Files.deleteIfExists(Path.of(PATH_CONVERTED_FILE_FROM_TEST + ".history"));
+        Files.deleteIfExists(Path.of(PATH_IDS_FILE_FROM_TEST));
+        Files.deleteIfExists(Path.of(PATH_TEMP_FILE_FROM_TEST));
+        Files.deleteIfExists(Path.of(PATH_SLOT_FILE_FROM_TEST));
     }
 
     @Test
@@ -84,6 +112,7 @@ class FileBackedTaskManagerTest extends InMemoryTaskManagerTest {
         taskManager.getEpicById(epic1.getId());
         taskManager.getSubtaskById(subtask1.getId());
         taskManager.getTaskById(task3.getId());
+        ((FileBackedTasksManager) taskManager).flush().join();
         // Read text from file
         String actual = Files.readString(Path.of(PATH_SAVE_FILE_FROM_TEST));
         String expected = """
@@ -96,9 +125,738 @@ class FileBackedTaskManagerTest extends InMemoryTaskManagerTest {
                 6,SUBTASK,Subtask1,NEW,null,2022-01-01T15:25,75,2022-01-01T16:40,4
                 7,SUBTASK,Subtask2,DONE,null,2022-01-01T18:25,45,2022-01-01T19:10,4
 
-                1,4,6,3""";
+                """;
 
         assertEquals(expected, actual);
+        assertEquals("1,4,6,3", Files.readString(Path.of(PATH_HISTORY_FILE_FROM_TEST)));
+    }
+
+    @Test
+    void getTaskById_shouldSaveOnlyHistory_AndLoadFromFileShouldRestoreIt() throws IOException {
+        Task task1 = createTask(1, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15);
+        Task task2 = createTask(2, "Task2", TaskStatus.DONE, null, 0);
+        taskManager.addTask(task1);
+        taskManager.addTask(task2);
+        String snapshot = Files.readString(Path.of(PATH_SAVE_FILE_FROM_TEST));
+
+        taskManager.getTaskById(task2.getId());
+        taskManager.getTaskById(task1.getId());
+        ((FileBackedTasksManager) taskManager).flush().join();
+
+        assertEquals(snapshot, Files.readString(Path.of(PATH_SAVE_FILE_FROM_TEST)));
+        assertEquals(List.of(task2, task1), FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST).getHistory());
+
+        taskManager.deleteTaskById(task2.getId());
+
+        assertFalse(Files.exists(Path.of(PATH_HISTORY_FILE_FROM_TEST)));
+        assertEquals(List.of(task1), FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST).getHistory());
+    }
+
+    @Test
+    void loadFromFile_shouldReplayJournalOverSnapshot_InJournaledMode() throws IOException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        Task task1 = createTask(0, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15);
+        Task task2 = createTask(0, "Task2", TaskStatus.IN_PROGRESS, "01.01.2022-13:35", 25);
+        Epic epic = createEpic(0, "Epic", TaskStatus.NEW, null, 0, null, List.of());
+        Subtask subtask1 = createSubtask(0, "Subtask1", 4, TaskStatus.DONE, "01.01.2022-15:25", 75);
+        Subtask subtask2 = createSubtask(0, "Subtask2", 4, TaskStatus.NEW, "01.01.2022-18:25", 45);
+        journaledManager.addTask(task1);
+        journaledManager.addTask(task2);
+        journaledManager.addEpic(createEpic(0, "Removed", TaskStatus.NEW, null, 0, null, List.of()));
+        journaledManager.addEpic(epic);
+        journaledManager.addSubtask(subtask1);
+        journaledManager.addSubtask(subtask2);
+        journaledManager.getTaskById(task1.getId());
+        journaledManager.getSubtaskById(subtask2.getId());
+        journaledManager.getEpicById(epic.getId());
+        journaledManager.updateTask(createTask(task1.getId(), "Task1", TaskStatus.DONE, "01.01.2022-12:20", 15));
+        journaledManager.deleteEpicById(3);
+        journaledManager.deleteSubtaskById(subtask2.getId());
+
+        assertEquals("", Files.readString(Path.of(PATH_SAVE_FILE_FROM_TEST)));
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true);
+        assertEquals(journaledManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(journaledManager.getAllSubTasks(), loadedManager.getAllSubTasks());
+        assertEquals(journaledManager.getAllEpics(), loadedManager.getAllEpics());
+        assertEquals(List.of(task1.getId(), epic.getId()),
+                loadedManager.getHistory().stream().map(Task::getId).toList());
+        assertEquals(journaledManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void loadFromFile_shouldNotMergeEarlierBoard_WhenJournaledManagerStartsFresh() {
+        FileBackedTasksManager oldManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        oldManager.addTask(createTask(0, "Old1", TaskStatus.NEW, null, 0));
+        oldManager.addTask(createTask(0, "Old2", TaskStatus.NEW, null, 0));
+        oldManager.compact();
+        oldManager.addTask(createTask(0, "Old3", TaskStatus.NEW, null, 0));
+        oldManager.close();
+
+        FileBackedTasksManager newManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        Task task = createTask(0, "New", TaskStatus.NEW, null, 0);
+        newManager.addTask(task);
+
+        assertEquals(1, task.getId());
+        assertEquals(List.of(task), FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true).getAllTasks());
+    }
+
+    @Test
+    void autoSchedule_shouldJournalEveryPlacedTaskAndItsEpic_InJournaledMode() {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15));
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 30));
+        journaledManager.addEpic(createEpic(0, "Epic", TaskStatus.NEW, null, 0, null, List.of()));
+        journaledManager.addSubtask(createSubtask(0, "Subtask1", 3, TaskStatus.NEW, null, 45));
+        journaledManager.addSubtask(createSubtask(0, "Subtask2", 3, TaskStatus.NEW, null, 15));
+        int recordCount = journaledManager.getJournalRecordCount();
+
+        List<Task> scheduledTasks = journaledManager.autoSchedule(null, LocalDateTime.of(2022, 1, 1, 12, 0),
+                LocalDateTime.of(2022, 1, 1, 14, 0));
+
+        assertEquals(3, scheduledTasks.size());
+        assertEquals(recordCount + 4, journaledManager.getJournalRecordCount());
+        // every subtask of the batch follows the record of its epic
+        List<String> batch = new TaskJournal(PATH_JOURNAL_FILE_FROM_TEST).readRecords().subList(recordCount,
+                recordCount + 4);
+        Set<String> journaledEpicIds = new HashSet<>();
+        for (String record : batch) {
+            String[] operationAndRow = record.split(",");
+            assertEquals("PUT", operationAndRow[0]);
+            switch (operationAndRow[2]) {
+                case "EPIC" -> journaledEpicIds.add(operationAndRow[1]);
+                case "SUBTASK" -> assertTrue(journaledEpicIds.contains(operationAndRow[9]));
+                default -> {
+                }
+            }
+        }
+        assertEquals(Set.of("3"), journaledEpicIds);
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true);
+        assertEquals(journaledManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+        assertEquals(journaledManager.getAllEpics(), loadedManager.getAllEpics());
+    }
+
+    @Test
+    void loadFromFile_shouldFoldJournalIntoSnapshot_InSnapshotMode() throws IOException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15));
+        journaledManager.getTaskById(1);
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        assertEquals(journaledManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(journaledManager.getHistory(), loadedManager.getHistory());
+        assertFalse(Files.exists(Path.of(PATH_JOURNAL_FILE_FROM_TEST)));
+        String expected = """
+                id,type,name,status,description,startTime,duration(min),endTime,epic
+                1,TASK,Task1,NEW,null,2022-01-01T12:20,15,2022-01-01T12:35
+
+                1""";
+        assertEquals(expected, Files.readString(Path.of(PATH_SAVE_FILE_FROM_TEST)));
+    }
+
+    @Test
+    void compact_shouldWriteSnapshotAndTruncateJournal() throws IOException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15));
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.DONE, null, 0));
+        journaledManager.getTaskById(2);
+        assertEquals(3, journaledManager.getJournalRecordCount());
+
+        journaledManager.compact();
+        journaledManager.deleteTaskById(1);
+
+        assertEquals(1, journaledManager.getJournalRecordCount());
+        String expected = """
+                id,type,name,status,description,startTime,duration(min),endTime,epic
+                1,TASK,Task1,NEW,null,2022-01-01T12:20,15,2022-01-01T12:35
+                2,TASK,Task2,DONE,null,null,0,null
+
+                2""";
+        assertEquals(expected, Files.readString(Path.of(PATH_SAVE_FILE_FROM_TEST)));
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true);
+        assertEquals(journaledManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(journaledManager.getHistory(), loadedManager.getHistory());
+    }
+
+    @Test
+    void getTaskById_shouldKeepEveryView_WhenReadersRunConcurrentlyWithCompaction() throws InterruptedException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(Managers.getDefaultHistory(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        for (int i = 0; i < 200; i++) {
+            journaledManager.addTask(createTask(0, "Task" + i, TaskStatus.NEW, null, 0));
+        }
+        List<Thread> readers = new ArrayList<>();
+        for (int reader = 0; reader < 4; reader++) {
+            int firstId = reader * 50 + 1;
+            readers.add(new Thread(() -> {
+                for (int id = firstId; id < firstId + 50; id++) {
+                    journaledManager.getTaskById(id);
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        for (int i = 0; i < 20; i++) {
+            journaledManager.compact();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true);
+        assertEquals(200, loadedManager.getHistory().size());
+    }
+
+    @Test
+    void getTaskById_shouldKeepEveryView_WhenReadersRunConcurrentlyWithSaves() throws InterruptedException {
+        FileBackedTasksManager fileManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST);
+        for (int i = 0; i < 200; i++) {
+            fileManager.addTask(createTask(0, "Task" + i, TaskStatus.NEW, null, 0));
+        }
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int reader = 0; reader < 4; reader++) {
+            int firstId = reader * 50 + 1;
+            Thread thread = new Thread(() -> {
+                for (int id = firstId; id < firstId + 50; id++) {
+                    fileManager.getTaskById(id);
+                }
+            });
+            thread.setUncaughtExceptionHandler((failedThread, e) -> failures.add(e));
+            readers.add(thread);
+        }
+        readers.forEach(Thread::start);
+        for (int i = 0; i < 20; i++) {
+            fileManager.updateTask(createTask(1, "Task0", TaskStatus.IN_PROGRESS, null, 0));
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(List.of(), failures);
+        fileManager.flush().join();
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        assertEquals(200, loadedManager.getHistory().size());
+    }
+
+    @Test
+    void getTaskById_shouldNotWaitForSaveInProgress_InSnapshotMode() throws InterruptedException {
+        FileBackedTasksManager fileManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST);
+        Task task = createTask(0, "Task1", TaskStatus.NEW, null, 0);
+        fileManager.addTask(task);
+        Thread reader = new Thread(() -> fileManager.getTaskById(1));
+        // a save holds the monitor while it writes the files
+        synchronized (fileManager) {
+            reader.start();
+            reader.join(5_000);
+            assertFalse(reader.isAlive());
+        }
+
+        fileManager.flush().join();
+        assertEquals(List.of(task), FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST).getHistory());
+    }
+
+    @Test
+    void loadFromFile_shouldSkipViewOfDeletedTask_WhenCompactionCrashedAfterSnapshotRename() throws IOException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, null, 0));
+        journaledManager.compact();
+        journaledManager.getTaskById(1);
+        journaledManager.deleteTaskById(1);
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 0));
+        byte[] journal = Files.readAllBytes(Path.of(PATH_JOURNAL_FILE_FROM_TEST));
+
+        // the snapshot without the task is renamed into place, the pending journal is not deleted yet
+        journaledManager.compact();
+        Files.write(Path.of(PATH_PENDING_JOURNAL_FILE_FROM_TEST), journal);
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true);
+        assertEquals(journaledManager.getAllTasks(), loadedManager.getAllTasks());
+        assertTrue(loadedManager.getHistory().isEmpty());
+        assertFalse(Files.exists(Path.of(PATH_PENDING_JOURNAL_FILE_FROM_TEST)));
+    }
+
+    @Test
+    void close_shouldStopBackgroundCompaction() throws InterruptedException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        journaledManager.enableCompaction(Long.MAX_VALUE, 1, 1);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, null, 0));
+        for (int i = 0; i < 1000 && journaledManager.getJournalRecordCount() > 0; i++) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, journaledManager.getJournalRecordCount());
+
+        journaledManager.close();
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 0));
+        Thread.sleep(50);
+
+        assertEquals(1, journaledManager.getJournalRecordCount());
+    }
+
+    @Test
+    void checkJournal_shouldRecordFailedCompaction_AndClearItAfterRetry() throws IOException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        JournalCompactor compactor = new JournalCompactor(journaledManager, Long.MAX_VALUE, 1, 1000);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, null, 0));
+        // the snapshot cannot be written while a directory takes the place of its temp file
+        Files.createDirectory(Path.of(PATH_TEMP_FILE_FROM_TEST));
+
+        compactor.checkJournal();
+        assertNotNull(compactor.getLastFailure());
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 0));
+        assertThrows(ManagerSaveException.class, compactor::compactIfNeeded);
+
+        Files.delete(Path.of(PATH_TEMP_FILE_FROM_TEST));
+        journaledManager.addTask(createTask(0, "Task3", TaskStatus.NEW, null, 0));
+        compactor.checkJournal();
+        assertNull(compactor.getLastFailure());
+        assertEquals(3, FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true).getAllTasks().size());
+    }
+
+    @Test
+    void loadFromFile_shouldDropSubtaskOfDeletedEpic_WhenPendingJournalPutsSubtaskBeforeEpic() {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        Epic epic = createEpic(0, "Epic", TaskStatus.NEW, null, 0, null, List.of());
+        journaledManager.addEpic(epic);
+        Subtask subtask = createSubtask(0, "Subtask", epic.getId(), TaskStatus.NEW, "01.01.2022-12:00", 30);
+        journaledManager.addSubtask(subtask);
+        journaledManager.addTask(createTask(0, "Task", TaskStatus.NEW, null, 0));
+        // the snapshot without the epic is renamed into place, the pending journal is not deleted yet
+        journaledManager.deleteEpicById(epic.getId());
+        journaledManager.compact();
+        TaskJournal pendingJournal = new TaskJournal(PATH_PENDING_JOURNAL_FILE_FROM_TEST);
+        pendingJournal.append(JournalOperation.PUT + "," + subtask.toCsvRow());
+        pendingJournal.append(JournalOperation.PUT + "," + epic.toCsvRow());
+        pendingJournal.append(JournalOperation.DELETE + "," + epic.getId());
+        pendingJournal.close();
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true);
+        assertTrue(loadedManager.getAllEpics().isEmpty());
+        assertTrue(loadedManager.getAllSubTasks().isEmpty());
+        assertEquals(journaledManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+        assertFalse(Files.exists(Path.of(PATH_PENDING_JOURNAL_FILE_FROM_TEST)));
+    }
+
+    @Test
+    void compactIfNeeded_shouldCompactOnlyAfterRecordThreshold() {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        JournalCompactor compactor = new JournalCompactor(journaledManager, Long.MAX_VALUE, 2, 1000);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, null, 0));
+        assertFalse(compactor.compactIfNeeded());
+
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 0));
+        assertTrue(compactor.compactIfNeeded());
+        assertEquals(0, journaledManager.getJournalRecordCount());
+        assertFalse(Files.exists(Path.of(PATH_JOURNAL_FILE_FROM_TEST)));
+    }
+
+    @Test
+    void flush_shouldPersistBufferedJournalRecords_InGroupCommitMode() {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        journaledManager.enableGroupCommit(60_000, 1000, FsyncPolicy.PER_BATCH);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15));
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 0));
+        assertEquals(0, FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true).getAllTasks().size());
+
+        journaledManager.flush().join();
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true);
+        assertEquals(journaledManager.getAllTasks(), loadedManager.getAllTasks());
+        journaledManager.close();
+    }
+
+    @Test
+    void enableGroupCommit_shouldSaveSnapshotAfterMaxPendingChanges() throws IOException {
+        FileBackedTasksManager snapshotManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST);
+        snapshotManager.enableGroupCommit(60_000, 2, FsyncPolicy.NONE);
+        snapshotManager.addTask(createTask(0, "Task1", TaskStatus.NEW, null, 0));
+        assertEquals("", Files.readString(Path.of(PATH_SAVE_FILE_FROM_TEST)));
+
+        snapshotManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 0));
+        snapshotManager.flush().join();
+
+        assertEquals(snapshotManager.getAllTasks(),
+                FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST).getAllTasks());
+        snapshotManager.close();
+    }
+
+    @Test
+    void loadFromFile_shouldLoadBinarySnapshot() {
+        FileBackedTasksManager binaryManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        binaryManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        Task task = createTask(0, "Задача, с запятой", TaskStatus.NEW, "01.01.2022-12:20", 15);
+        task.setDescription("Описание");
+        binaryManager.addTask(task);
+        binaryManager.addTask(createTask(0, "Task2", TaskStatus.DONE, null, 0));
+        binaryManager.addEpic(createEpic(0, "Epic", TaskStatus.NEW, null, 0, null, List.of()));
+        binaryManager.addSubtask(createSubtask(0, "Subtask", 3, TaskStatus.IN_PROGRESS, "01.01.2022-15:25", 75));
+        binaryManager.getEpicById(3);
+        binaryManager.getTaskById(1);
+        binaryManager.deleteTaskById(2);
+        binaryManager.flush().join();
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        assertEquals(binaryManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(binaryManager.getAllSubTasks(), loadedManager.getAllSubTasks());
+        assertEquals(binaryManager.getAllEpics(), loadedManager.getAllEpics());
+        assertEquals(binaryManager.getHistory(), loadedManager.getHistory());
+        assertEquals(binaryManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void updateTask_shouldNotRewriteHistoryFile_WhenHistoryIsUnchanged_InFixedWidthSnapshot() throws IOException {
+        FileBackedTasksManager fixedWidthManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        fixedWidthManager.setSnapshotFormat(SnapshotFormat.FIXED_WIDTH);
+        Task task = createTask(0, "Task1", TaskStatus.NEW, null, 0);
+        fixedWidthManager.addTask(task);
+        fixedWidthManager.getTaskById(1);
+        fixedWidthManager.flush().join();
+        assertEquals("1", Files.readString(Path.of(PATH_HISTORY_FILE_FROM_TEST)));
+        Files.writeString(Path.of(PATH_HISTORY_FILE_FROM_TEST), "unchanged");
+
+        task.setStatus(TaskStatus.DONE);
+        fixedWidthManager.updateTask(task);
+        fixedWidthManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 0));
+        assertEquals("unchanged", Files.readString(Path.of(PATH_HISTORY_FILE_FROM_TEST)));
+
+        fixedWidthManager.getTaskById(2);
+        fixedWidthManager.flush().join();
+        assertEquals("1,2", Files.readString(Path.of(PATH_HISTORY_FILE_FROM_TEST)));
+    }
+
+    @Test
+    void updateTask_shouldRewriteOnlyItsSlot_InFixedWidthSnapshot() throws IOException {
+        FileBackedTasksManager fixedWidthManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        fixedWidthManager.setSnapshotFormat(SnapshotFormat.FIXED_WIDTH);
+        Task task = createTask(0, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15);
+        fixedWidthManager.addTask(task);
+        fixedWidthManager.addTask(createTask(0, "Task2", TaskStatus.DONE, null, 0));
+        fixedWidthManager.addEpic(createEpic(0, "Epic", TaskStatus.NEW, null, 0, null, List.of()));
+        fixedWidthManager.addSubtask(createSubtask(0, "Subtask", 3, TaskStatus.IN_PROGRESS, "01.01.2022-15:25", 75));
+        fixedWidthManager.getTaskById(1);
+        fixedWidthManager.flush().join();
+        byte[] before = Files.readAllBytes(Path.of(PATH_SAVE_FILE_FROM_TEST));
+        assertEquals(5 * 128, before.length);
+
+        task.setStatus(TaskStatus.DONE);
+        fixedWidthManager.updateTask(task);
+        byte[] after = Files.readAllBytes(Path.of(PATH_SAVE_FILE_FROM_TEST));
+        assertEquals(before.length, after.length);
+        for (int i = 0; i < after.length; i++) {
+            if (i / 128 != 1) {
+                assertEquals(before[i], after[i]);
+            }
+        }
+
+        fixedWidthManager.deleteTaskById(2);
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        assertEquals(fixedWidthManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(fixedWidthManager.getAllSubTasks(), loadedManager.getAllSubTasks());
+        assertEquals(fixedWidthManager.getAllEpics(), loadedManager.getAllEpics());
+        assertEquals(fixedWidthManager.getHistory(), loadedManager.getHistory());
+        assertEquals(fixedWidthManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void loadFromFile_shouldTruncateTornJournalTail() throws IOException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15));
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.DONE, null, 0));
+        journaledManager.close();
+        long journalSize = Files.size(Path.of(PATH_JOURNAL_FILE_FROM_TEST));
+        Files.writeString(Path.of(PATH_JOURNAL_FILE_FROM_TEST), "PUT,3,TASK,Torn", StandardOpenOption.APPEND);
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true);
+        assertEquals(journaledManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(journalSize, Files.size(Path.of(PATH_JOURNAL_FILE_FROM_TEST)));
+        loadedManager.addTask(createTask(0, "Task3", TaskStatus.NEW, null, 0));
+        loadedManager.close();
+        assertEquals(3, FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true).getAllTasks().size());
+    }
+
+    @Test
+    void loadFromFile_shouldTruncateDamagedLastRecord() throws IOException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, null, 0));
+        journaledManager.close();
+        long journalSize = Files.size(Path.of(PATH_JOURNAL_FILE_FROM_TEST));
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 0));
+        journaledManager.close();
+        String journal = Files.readString(Path.of(PATH_JOURNAL_FILE_FROM_TEST));
+        Files.writeString(Path.of(PATH_JOURNAL_FILE_FROM_TEST), journal.replace("Task2", "Tbsk2"));
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true);
+        assertEquals(1, loadedManager.getAllTasks().size());
+        assertEquals(journalSize, Files.size(Path.of(PATH_JOURNAL_FILE_FROM_TEST)));
+    }
+
+    @Test
+    void loadFromFile_shouldThrowManagerSaveException_WhenValidRecordFollowsDamagedOne() throws IOException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, null, 0));
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 0));
+        journaledManager.close();
+        String journal = Files.readString(Path.of(PATH_JOURNAL_FILE_FROM_TEST));
+        Files.writeString(Path.of(PATH_JOURNAL_FILE_FROM_TEST), journal.replace("Task1", "Tbsk1"));
+
+        ManagerSaveException exception = assertThrows(ManagerSaveException.class,
+                () -> FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, true));
+        assertEquals("Journal " + Path.of(PATH_JOURNAL_FILE_FROM_TEST) + " is corrupted at byte 0",
+                exception.getMessage());
+        assertEquals(journal.length(), Files.size(Path.of(PATH_JOURNAL_FILE_FROM_TEST)));
+    }
+
+    @Test
+    void loadFromFile_shouldRestoreTornSlotFromSlotFile_InFixedWidthSnapshot() throws IOException {
+        FileBackedTasksManager fixedWidthManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        fixedWidthManager.setSnapshotFormat(SnapshotFormat.FIXED_WIDTH);
+        Task task1 = createTask(0, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15);
+        Task task2 = createTask(0, "Task2", TaskStatus.DONE, null, 0);
+        fixedWidthManager.addTask(task1);
+        fixedWidthManager.addTask(task2);
+        byte[] snapshot = Files.readAllBytes(Path.of(PATH_SAVE_FILE_FROM_TEST));
+        // a crash in the middle of rewriting the slot of task 2
+        snapshot[2 * 128 + 2] = 'X';
+        Files.write(Path.of(PATH_SAVE_FILE_FROM_TEST), snapshot);
+
+        assertEquals(List.of(task1, task2), FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST).getAllTasks());
+        assertEquals(List.of(task1, task2), FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST).getAllTasks());
+    }
+
+    @Test
+    void loadFromFile_shouldThrowManagerSaveException_AndKeepFile_WhenSlotWithoutCopyIsDamaged() throws IOException {
+        FileBackedTasksManager fixedWidthManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        fixedWidthManager.setSnapshotFormat(SnapshotFormat.FIXED_WIDTH);
+        Epic epic = createEpic(0, "Epic", TaskStatus.NEW, null, 0, null, List.of());
+        fixedWidthManager.addEpic(epic);
+        fixedWidthManager.addSubtask(createSubtask(0, "Subtask", epic.getId(), TaskStatus.NEW, null, 0));
+        fixedWidthManager.addTask(createTask(0, "Task", TaskStatus.NEW, null, 0));
+        byte[] snapshot = Files.readAllBytes(Path.of(PATH_SAVE_FILE_FROM_TEST));
+        // the slot file only holds the slot of the task, the epic slot is damaged otherwise
+        snapshot[128 + 2] = 'X';
+        Files.write(Path.of(PATH_SAVE_FILE_FROM_TEST), snapshot);
+
+        assertThrows(ManagerSaveException.class, () -> FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST));
+        assertArrayEquals(snapshot, Files.readAllBytes(Path.of(PATH_SAVE_FILE_FROM_TEST)));
+    }
+
+    @Test
+    void loadFromFile_shouldRejectBinarySnapshotWithBadChecksum() throws IOException {
+        FileBackedTasksManager binaryManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        binaryManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        binaryManager.addTask(createTask(0, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15));
+        byte[] snapshot = Files.readAllBytes(Path.of(PATH_SAVE_FILE_FROM_TEST));
+        snapshot[snapshot.length - 6] ^= 1;
+        Files.write(Path.of(PATH_SAVE_FILE_FROM_TEST), snapshot);
+
+        assertThrows(ManagerSaveException.class, () -> FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST));
+    }
+
+    @Test
+    void save_shouldKeepLazyDescriptionsReadable_AfterSnapshotIsReplaced() {
+        FileBackedTasksManager fileManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST);
+        for (int i = 1; i <= 3; i++) {
+            Task task = createTask(0, "Task" + i, TaskStatus.NEW, null, 0);
+            task.setDescription("Описание задачи " + i);
+            fileManager.addTask(task);
+        }
+
+        FileBackedTasksManager lazyManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, false, 1);
+        lazyManager.deleteTaskById(2);
+        lazyManager.addTask(createTask(0, "Task4", TaskStatus.NEW, null, 0));
+        assertEquals("Описание задачи 1", lazyManager.getTaskById(1).getDescription());
+        assertEquals("Описание задачи 3", lazyManager.getTaskById(3).getDescription());
+        lazyManager.flush().join();
+        assertEquals(lazyManager.getAllTasks(),
+                FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST).getAllTasks());
+    }
+
+    @Test
+    void toJson_shouldWriteLazyDescription_WhileHashCodeAndEqualsDoNotLoadIt() {
+        FileBackedTasksManager fileManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST);
+        Task task = createTask(0, "Task1", TaskStatus.NEW, null, 0);
+        task.setDescription("Описание задачи 1");
+        fileManager.addTask(task);
+
+        FileBackedTasksManager lazyManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST, false, 1);
+        String json = Managers.getGson().toJson(lazyManager.getTaskById(1));
+        lazyManager.close();
+        assertEquals(task, Managers.getGson().fromJson(json, Task.class));
+
+        int[] loads = new int[1];
+        IntFunction<String> loader = id -> {
+            loads[0]++;
+            return "Описание задачи " + id;
+        };
+        Task lazyTask = createTask(1, "Task1", TaskStatus.NEW, null, 0);
+        lazyTask.setDescriptionLoader(loader);
+        Task sameLazyTask = createTask(1, "Task1", TaskStatus.NEW, null, 0);
+        sameLazyTask.setDescriptionLoader(loader);
+        assertEquals(lazyTask, sameLazyTask);
+        assertEquals(lazyTask.hashCode(), sameLazyTask.hashCode());
+        assertEquals(0, loads[0]);
+    }
+
+    @Test
+    void addTask_shouldNotReuseIdsOfDeletedTasks_AfterRestart() throws IOException {
+        FileBackedTasksManager fileManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST);
+        fileManager.addTask(createTask(0, "Task1", TaskStatus.NEW, null, 0));
+        fileManager.addTask(createTask(0, "Task2", TaskStatus.NEW, null, 0));
+        fileManager.deleteTaskById(2);
+        int reservedId = Integer.parseInt(Files.readString(Path.of(PATH_IDS_FILE_FROM_TEST)));
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        Task task = createTask(0, "Task3", TaskStatus.NEW, null, 0);
+        loadedManager.addTask(task);
+        assertTrue(task.getId() > reservedId);
+        FileBackedTasksManager reloadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        assertEquals(task, reloadedManager.getTaskById(task.getId()));
+        reloadedManager.close();
+    }
+
+    @Test
+    void addTask_shouldKeepNewIdsInDenseIndex_AfterRestartsSkipReservedBlocks() {
+        for (int restart = 0; restart < 3; restart++) {
+            FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+            Task task = createTask(0, "Task" + restart, TaskStatus.NEW, null, 0);
+            loadedManager.addTask(task);
+
+            assertTrue(loadedManager.entities.isDense(task.getId()));
+            assertEquals(restart + 1, loadedManager.getAllTasks().size());
+        }
+    }
+
+    @Test
+    void convertSnapshot_shouldConvertCsvToBinaryAndBack() throws IOException {
+        FileBackedTasksManager.convertSnapshot(PATH_LOAD_FILE_FROM_TEST, PATH_CONVERTED_FILE_FROM_TEST,
+                SnapshotFormat.BINARY);
+        FileBackedTasksManager.convertSnapshot(PATH_CONVERTED_FILE_FROM_TEST, PATH_SAVE_FILE_FROM_TEST,
+                SnapshotFormat.CSV);
+
+        assertTrue(BinarySnapshotCodec.isBinary(Files.readAllBytes(Path.of(PATH_CONVERTED_FILE_FROM_TEST))));
+        assertEquals(Files.readString(Path.of(PATH_LOAD_FILE_FROM_TEST)),
+                Files.readString(Path.of(PATH_SAVE_FILE_FROM_TEST)));
+    }
+
+    @Test
+    void convertSnapshot_shouldKeepHistory_AndLeaveSourceUnchanged_WhenConvertingToFixedWidth() throws IOException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        journaledManager.addTask(createTask(0, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15));
+        journaledManager.addTask(createTask(0, "Task2", TaskStatus.DONE, null, 0));
+        journaledManager.getTaskById(2);
+        journaledManager.getTaskById(1);
+        journaledManager.close();
+        byte[] snapshot = Files.readAllBytes(Path.of(PATH_SAVE_FILE_FROM_TEST));
+        byte[] journal = Files.readAllBytes(Path.of(PATH_JOURNAL_FILE_FROM_TEST));
+
+        FileBackedTasksManager.convertSnapshot(PATH_SAVE_FILE_FROM_TEST, PATH_CONVERTED_FILE_FROM_TEST,
+                SnapshotFormat.FIXED_WIDTH);
+
+        assertArrayEquals(snapshot, Files.readAllBytes(Path.of(PATH_SAVE_FILE_FROM_TEST)));
+        assertArrayEquals(journal, Files.readAllBytes(Path.of(PATH_JOURNAL_FILE_FROM_TEST)));
+        FileBackedTasksManager convertedManager = FileBackedTasksManager.loadFromFile(PATH_CONVERTED_FILE_FROM_TEST);
+        assertEquals(journaledManager.getAllTasks(), convertedManager.getAllTasks());
+        assertEquals(journaledManager.getHistory(), convertedManager.getHistory());
+    }
+
+    @Test
+    void loadFromFile_shouldParseCrlfLineEndingsAndSeconds() throws IOException {
+        Files.writeString(Path.of(PATH_SAVE_FILE_FROM_TEST), """
+                id,type,name,status,description,startTime,duration(min),endTime,epic\r
+                1,TASK,Task1,NEW,Описание,2022-01-01T12:20:30,15,2022-01-01T12:35:30\r
+                2,EPIC,Epic1,DONE,null,2022-01-01T15:25,120,2022-01-01T17:25\r
+                3,SUBTASK,Subtask1,DONE,null,2022-01-01T15:25,120,2022-01-01T17:25,2\r
+                \r
+                3,1\r
+                """);
+        Task task = createTask(1, "Task1", TaskStatus.NEW, null, 15);
+        task.setDescription("Описание");
+        task.setStartTime(LocalDateTime.of(2022, 1, 1, 12, 20, 30));
+        Epic epic = createEpic(2, "Epic1", TaskStatus.DONE, "01.01.2022-15:25", 120, "01.01.2022-17:25",
+                List.of(3));
+        Subtask subtask = createSubtask(3, "Subtask1", 2, TaskStatus.DONE, "01.01.2022-15:25", 120);
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        assertEquals(List.of(task), loadedManager.getAllTasks());
+        assertEquals(List.of(epic), loadedManager.getAllEpics());
+        assertEquals(List.of(subtask), loadedManager.getAllSubTasks());
+        assertEquals(List.of(subtask, task), loadedManager.getHistory());
+        assertTrue(loadedManager.getLoadRowsPerSecond() > 0);
+    }
+
+    @Test
+    void loadFromFile_shouldLinkSubtaskToEpic_WhenSubtaskRowComesFirst() throws IOException {
+        Files.writeString(Path.of(PATH_SAVE_FILE_FROM_TEST), """
+                id,type,name,status,description,startTime,duration(min),endTime,epic
+                2,SUBTASK,Subtask1,DONE,null,2022-01-01T15:25,120,2022-01-01T17:25,1
+                1,EPIC,Epic1,DONE,null,2022-01-01T15:25,120,2022-01-01T17:25
+
+                """);
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        assertEquals(Set.of(2), loadedManager.getEpicById(1).getSubtaskIds());
+        assertEquals(1, loadedManager.getAllSubTasks().size());
+        loadedManager.close();
+    }
+
+    @Test
+    void loadFromFile_shouldThrowManagerSaveException_WhenSubtaskEpicIsMissing() throws IOException {
+        Files.writeString(Path.of(PATH_SAVE_FILE_FROM_TEST), """
+                id,type,name,status,description,startTime,duration(min),endTime,epic
+                2,SUBTASK,Subtask1,DONE,null,2022-01-01T15:25,120,2022-01-01T17:25,1
+
+                """);
+
+        ManagerSaveException exception = assertThrows(ManagerSaveException.class,
+                () -> FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST));
+        assertEquals("Subtask 2 refers to missing epic 1", exception.getMessage());
+    }
+
+    @Test
+    void loadFromFile_shouldLoadLargeSnapshotInParallelChunks() throws IOException {
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(new InMemoryHistoryManager(),
+                PATH_SAVE_FILE_FROM_TEST, true);
+        LocalDateTime startTime = LocalDateTime.of(2022, 1, 1, 0, 0);
+        for (int i = 0; i < 1000; i++) {
+            journaledManager.addEpic(createEpic(0, "Epic" + i, TaskStatus.NEW, null, 0, null, List.of()));
+            int epicId = journaledManager.getAllEpics().size() + 2 * i;
+            Subtask subtask = createSubtask(0, "Subtask" + i, epicId, TaskStatus.DONE, null, 10);
+            subtask.setStartTime(startTime.plusMinutes(30L * i));
+            journaledManager.addSubtask(subtask);
+            Task task = createTask(0, "Task" + i, TaskStatus.IN_PROGRESS, null, 10);
+            task.setStartTime(i % 10 == 0 ? null : startTime.plusMinutes(30L * i + 15));
+            journaledManager.addTask(task);
+            journaledManager.getTaskById(task.getId());
+        }
+        journaledManager.compact();
+        assertTrue(Files.size(Path.of(PATH_SAVE_FILE_FROM_TEST)) > 128 * 1024);
+
+        FileBackedTasksManager loadedManager = FileBackedTasksManager.loadFromFile(PATH_SAVE_FILE_FROM_TEST);
+        assertEquals(journaledManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(journaledManager.getAllSubTasks(), loadedManager.getAllSubTasks());
+        assertEquals(journaledManager.getAllEpics(), loadedManager.getAllEpics());
+        assertEquals(journaledManager.getHistory(), loadedManager.getHistory());
+        assertEquals(journaledManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
     }
 
     @Test
@@ -27,6 +27,7 @@ class HttpTaskManagerTest extends InMemoryTaskManagerTest {
 
     @AfterEach
     void stopServer() {
+        ((HttpTaskManager) taskManager).close();
         server.stop();
     }
 
@@ -43,6 +44,7 @@ class HttpTaskManagerTest extends InMemoryTaskManagerTest {
         taskManager.addSubtask(subtask1);
         taskManager.getTaskById(task1.getId());
         taskManager.getTaskById(task2.getId());
+        ((HttpTaskManager) taskManager).flush().join();
         HttpTaskManager newManager = new HttpTaskManager(Managers.getDefaultHistory(),
                 "http://localhost:" + KVServer.PORT);
         newManager.loadFromServer();
@@ -53,6 +55,29 @@ class HttpTaskManagerTest extends InMemoryTaskManagerTest {
         assertEquals(taskManager.getPrioritizedTasks(), newManager.getPrioritizedTasks());
     }
 
+    @Test
+    void loadFromServer_shouldRestoreLatestState_AfterAsyncCoalescedSaves() throws IOException, InterruptedException {
+        HttpTaskManager asyncManager = (HttpTaskManager) taskManager;
+        asyncManager.enableAsyncSaves(8, true);
+        Epic epic = createEpic(List.of());
+        asyncManager.addEpic(epic);
+        for (int i = 0; i < 50; i++) {
+            Task task = createTask(null, 0);
+            asyncManager.addTask(task);
+            task.setName("Task" + i);
+            asyncManager.updateTask(task);
+            asyncManager.getTaskById(task.getId());
+        }
+        asyncManager.flush().join();
+
+        HttpTaskManager newManager = new HttpTaskManager(Managers.getDefaultHistory(),
+                "http://localhost:" + KVServer.PORT);
+        newManager.loadFromServer();
+        assertEquals(asyncManager.getAllTasks(), newManager.getAllTasks());
+        assertEquals(asyncManager.getAllEpics(), newManager.getAllEpics());
+        assertEquals(asyncManager.getHistory(), newManager.getHistory());
+    }
+
     private Task createTask(String startTime, long duration) {
         Task task = new Task();
         task.setName("Task");
@@ -10,7 +10,9 @@ import ru.yandex.practicum.tasktracker.model.Epic;
 import ru.yandex.practicum.tasktracker.model.Subtask;
 import ru.yandex.practicum.tasktracker.model.Task;
 import ru.yandex.practicum.tasktracker.model.TaskStatus;
+import ru.yandex.practicum.tasktracker.server.ClientIdFilter;
 import ru.yandex.practicum.tasktracker.server.HttpTaskServer;
+import ru.yandex.practicum.tasktracker.server.handler.FreeSlotsHandler;
 import ru.yandex.practicum.tasktracker.utils.Managers;
 
 import java.io.IOException;
@@ -18,6 +20,8 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -25,6 +29,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class HttpTaskServerTest {
     private static HttpTaskServer taskServer;
+    private static FileBackedTasksManager manager;
 
     private static final Gson GSON = Managers.getGson();
     private static final String TASK_BASE_URL = "http://localhost:8080/tasks/task/";
@@ -33,17 +38,23 @@ class HttpTaskServerTest {
     private static final String TASKS_BASE_URL = "http://localhost:8080/tasks/";
     private static final String SUBTASKS_OF_EPIC_BASE_URL = "http://localhost:8080/tasks/subtask/epic/";
     private static final String HISTORY_BASE_URL = "http://localhost:8080/tasks/history/";
+    private static final String FREE_SLOTS_BASE_URL = "http://localhost:8080/tasks/slots/";
 
     @BeforeEach
     void startServer() throws IOException {
-        TaskManager manager = Managers.getFileBackedTasksManager();
+        manager = (FileBackedTasksManager) Managers.getFileBackedTasksManager();
         taskServer = new HttpTaskServer(manager);
         taskServer.start();
     }
 
     @AfterEach
-    void stopServer() {
+    void stopServer() throws IOException {
         taskServer.stop();
+        // views are saved in the background, closing waits for them before the files are removed
+        manager.close();
+        Files.deleteIfExists(Path.of(Managers.PATH_SAVE_FILE));
+        Files.deleteIfExists(Path.of(Managers.PATH_SAVE_FILE + ".history"));
+        Files.deleteIfExists(Path.of(Managers.PATH_SAVE_FILE + ".ids"));
     }
 
     @Test
@@ -59,6 +70,43 @@ class HttpTaskServerTest {
         assertEquals(2, arrayTasks.size());
     }
 
+    @Test
+    void getHistory_shouldReturnOwnHistory_ForClientHeader() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        int[] ids = new int[2];
+        for (int i = 0; i < ids.length; i++) {
+            Task task = createTask("0" + (i + 1) + ".01.2022-12:20", 15);
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(TASK_BASE_URL))
+                    .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(task)))
+                    .build();
+            ids[i] = Integer.parseInt(client.send(request, HttpResponse.BodyHandlers.ofString()).body().split("=")[1]);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(TASK_BASE_URL + "?id=" + ids[i]))
+                    .header(ClientIdFilter.CLIENT_ID_HEADER, "client" + i)
+                    .GET()
+                    .build();
+            client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(HISTORY_BASE_URL))
+                .header(ClientIdFilter.CLIENT_ID_HEADER, "client1")
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        JsonArray ownHistory = JsonParser.parseString(response.body()).getAsJsonArray();
+        assertEquals(1, ownHistory.size());
+        assertEquals(ids[1], ownHistory.get(0).getAsJsonObject().get("id").getAsInt());
+
+        request = HttpRequest.newBuilder().uri(URI.create(HISTORY_BASE_URL)).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(2, JsonParser.parseString(response.body()).getAsJsonArray().size());
+    }
+
     @Test
     void getSubtasksByEpicId() throws IOException, InterruptedException {
         HttpClient client = HttpClient.newHttpClient();
@@ -98,6 +146,45 @@ class HttpTaskServerTest {
         }
     }
 
+    @Test
+    void getFreeSlots() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(TASK_BASE_URL))
+                .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(createTask("01.01.2022-12:20", 45))))
+                .build();
+        client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        URI url = URI.create(FREE_SLOTS_BASE_URL + "?duration=30&from=2022-01-01T12:00&to=2022-01-01T14:30&count=2");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        JsonArray slots = JsonParser.parseString(response.body()).getAsJsonArray();
+        assertEquals(2, slots.size());
+        assertEquals(LocalDateTime.of(2022, 1, 1, 13, 5), GSON.fromJson(slots.get(0), LocalDateTime.class));
+
+        url = URI.create(FREE_SLOTS_BASE_URL + "?duration=30");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    void getFreeSlots_shouldReturn400_WhenCountIsAboveLimit() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        String query = "?duration=30&from=2022-01-01T12:00&to=2022-01-01T14:30&count=";
+
+        URI url = URI.create(FREE_SLOTS_BASE_URL + query + FreeSlotsHandler.MAX_SLOT_COUNT);
+        HttpRequest request = HttpRequest.newBuilder().uri(url).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+
+        url = URI.create(FREE_SLOTS_BASE_URL + query + (FreeSlotsHandler.MAX_SLOT_COUNT + 1));
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+
     @Test
     void getPrioritizedTasks() throws IOException, InterruptedException {
         HttpClient client = HttpClient.newHttpClient();
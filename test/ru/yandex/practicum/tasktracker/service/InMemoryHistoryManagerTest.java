@@ -1,5 +1,6 @@
 package ru.yandex.practicum.tasktracker.service;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.tasktracker.model.Task;
 
@@ -9,7 +10,16 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class InMemoryHistoryManagerTest {
-    private final HistoryManager historyManager = new InMemoryHistoryManager();
+    protected HistoryManager historyManager;
+
+    @BeforeEach
+    void setUp() {
+        historyManager = createHistoryManager();
+    }
+
+    protected HistoryManager createHistoryManager() {
+        return new InMemoryHistoryManager();
+    }
 
     @Test
     void getHistory_shouldReturnEmptyHistory() {
@@ -90,7 +100,7 @@ class InMemoryHistoryManagerTest {
         assertTrue(historyManager.getHistory().isEmpty());
     }
 
-    private static Task task(int id) {
+    protected static Task task(int id) {
         Task task = new Task();
         task.setId(id);
         return task;
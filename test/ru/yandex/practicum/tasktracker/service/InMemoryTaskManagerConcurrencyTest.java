@@ -0,0 +1,188 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.tasktracker.model.Epic;
+import ru.yandex.practicum.tasktracker.model.Subtask;
+import ru.yandex.practicum.tasktracker.model.Task;
+import ru.yandex.practicum.tasktracker.model.TaskStatus;
+import ru.yandex.practicum.tasktracker.service.exception.IntersectionException;
+import ru.yandex.practicum.tasktracker.utils.Managers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryTaskManagerConcurrencyTest {
+    private static final int THREAD_COUNT = 8;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2022, 1, 1, 0, 0);
+
+    private final TaskManager taskManager = Managers.getInMemoryTaskManager();
+
+    @Test
+    void addTask_shouldNotLoseUpdatesOrDuplicateIds_WhenCalledConcurrently() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        List<Future<?>> readResults = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            readResults.add(readers.submit(() -> {
+                while (writing.get()) {
+                    taskManager.getAllTasks();
+                    taskManager.getPrioritizedTasks();
+                    taskManager.getAllEpics().forEach(epic -> taskManager.getSubtasksByEpicId(epic.getId()));
+                }
+            }));
+        }
+
+        runConcurrently(thread -> () -> {
+            Epic epic = createEpic("Epic" + thread);
+            taskManager.addEpic(epic);
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                // every task gets its own ten-minute slot, so intersections never reject it
+                int slot = thread * OPERATIONS_PER_THREAD + i;
+                if (i % 2 == 0) {
+                    taskManager.addTask(createTask("Task" + slot, START_TIME.plusMinutes(slot * 10L)));
+                } else {
+                    taskManager.addSubtask(createSubtask("Subtask" + slot, epic.getId(),
+                            START_TIME.plusMinutes(slot * 10L)));
+                }
+            }
+            return null;
+        });
+        writing.set(false);
+        readers.shutdown();
+        assertTrue(readers.awaitTermination(10, TimeUnit.SECONDS));
+        for (Future<?> readResult : readResults) {
+            readResult.get();
+        }
+
+        int expectedCount = THREAD_COUNT * OPERATIONS_PER_THREAD;
+        Set<Integer> ids = new HashSet<>();
+        taskManager.getAllTasks().forEach(task -> ids.add(task.getId()));
+        taskManager.getAllSubTasks().forEach(subtask -> ids.add(subtask.getId()));
+        taskManager.getAllEpics().forEach(epic -> ids.add(epic.getId()));
+        assertEquals(expectedCount + THREAD_COUNT, ids.size());
+        assertEquals(expectedCount, taskManager.getPrioritizedTasks().size());
+        for (Epic epic : taskManager.getAllEpics()) {
+            assertEquals(OPERATIONS_PER_THREAD / 2, taskManager.getSubtasksByEpicId(epic.getId()).size());
+        }
+    }
+
+    @Test
+    void addTask_shouldAcceptOnlyOneOfIntersectingTasks_WhenCalledConcurrently() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(thread -> () -> {
+            try {
+                taskManager.addTask(createTask("Task" + thread, START_TIME));
+            } catch (IntersectionException e) {
+                rejected.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertEquals(1, taskManager.getAllTasks().size());
+        assertEquals(THREAD_COUNT - 1, rejected.get());
+    }
+
+    @Test
+    void updateSubtask_shouldKeepEpicStatusConsistent_WhenCalledConcurrently() throws Exception {
+        Epic epic = createEpic("Epic");
+        taskManager.addEpic(epic);
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            taskManager.addSubtask(createSubtask("Subtask" + i, epic.getId(), null));
+        }
+        List<Subtask> subtasks = taskManager.getSubtasksByEpicId(epic.getId());
+
+        runConcurrently(thread -> () -> {
+            Subtask subtask = subtasks.get(thread);
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                subtask.setStatus(i % 2 == 0 ? TaskStatus.IN_PROGRESS : TaskStatus.NEW);
+                taskManager.updateSubtask(subtask);
+            }
+            subtask.setStatus(TaskStatus.DONE);
+            taskManager.updateSubtask(subtask);
+            return null;
+        });
+
+        assertEquals(TaskStatus.DONE, taskManager.getEpicById(epic.getId()).getStatus());
+        assertTrue(taskManager.getAllSubTasks().stream().allMatch(subtask -> subtask.getStatus() == TaskStatus.DONE));
+    }
+
+    @Test
+    void getSnapshot_shouldBuildOneSnapshot_WhenReadersArriveTogetherAfterMutation() throws Exception {
+        for (int round = 0; round < 100; round++) {
+            taskManager.addTask(createTask("Task" + round, START_TIME.plusMinutes(round * 10L)));
+            Set<TaskSnapshot> snapshots = ConcurrentHashMap.newKeySet();
+            runConcurrently(thread -> () -> {
+                snapshots.add(taskManager.getSnapshot());
+                return null;
+            });
+
+            assertEquals(1, snapshots.size());
+            assertEquals(round + 1, snapshots.iterator().next().getTasks().size());
+        }
+    }
+
+    private void runConcurrently(ThreadTask threadTask) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            Callable<Void> callable = threadTask.create(i);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return callable.call();
+            }));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+
+    private interface ThreadTask {
+        Callable<Void> create(int thread);
+    }
+
+    private Task createTask(String name, LocalDateTime startTime) {
+        Task task = new Task();
+        task.setName(name);
+        task.setStatus(TaskStatus.NEW);
+        task.setStartTime(startTime);
+        task.setDuration(5);
+        return task;
+    }
+
+    private Epic createEpic(String name) {
+        Epic epic = new Epic();
+        epic.setName(name);
+        return epic;
+    }
+
+    private Subtask createSubtask(String name, int epicId, LocalDateTime startTime) {
+        Subtask subtask = new Subtask();
+        subtask.setName(name);
+        subtask.setEpicId(epicId);
+        subtask.setStatus(TaskStatus.NEW);
+        if (startTime != null) {
+            subtask.setStartTime(startTime);
+            subtask.setDuration(5);
+        }
+        return subtask;
+    }
+}
@@ -16,7 +16,9 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class InMemoryTaskManagerTest {
     protected TaskManager taskManager;
@@ -30,6 +32,90 @@ class InMemoryTaskManagerTest {
         return Managers.getInMemoryTaskManager();
     }
 
+    @Test
+    void getSnapshot_shouldShareSnapshotUntilNextMutation() {
+        taskManager.addTask(createTask(1, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15));
+        TaskSnapshot snapshot = taskManager.getSnapshot();
+        assertSame(snapshot, taskManager.getSnapshot());
+        assertSame(snapshot.getTasks(), taskManager.getAllTasks());
+
+        Task task2 = createTask(2, "Task2", TaskStatus.NEW, "01.01.2022-10:20", 15);
+        taskManager.addTask(task2);
+        TaskSnapshot nextSnapshot = taskManager.getSnapshot();
+        assertTrue(nextSnapshot.getVersion() > snapshot.getVersion());
+        assertEquals(1, snapshot.getTasks().size());
+        assertEquals(task2, nextSnapshot.getPrioritizedTasks().get(0));
+        assertThrows(UnsupportedOperationException.class, () -> nextSnapshot.getTasks().add(task2));
+    }
+
+    @Test
+    void getTasksOverlapping_shouldReturnTasksAndSubtasksInWindowByStartTime() {
+        Task task1 = createTask(1, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15);
+        Task task2 = createTask(2, "Task2", TaskStatus.IN_PROGRESS, "01.01.2022-13:35", 25);
+        Epic epic = createEpic(3, "Epic", null, null, List.of());
+        Subtask subtask = createSubtask(4, "Subtask", 3, TaskStatus.NEW, "01.01.2022-13:00", 30);
+        taskManager.addTask(task1);
+        taskManager.addTask(task2);
+        taskManager.addEpic(epic);
+        taskManager.addSubtask(subtask);
+        taskManager.addTask(createTask(5, "Task5", TaskStatus.NEW, null, 0));
+
+        List<Task> actual = taskManager.getTasksOverlapping(LocalDateTime.of(2022, 1, 1, 12, 30),
+                LocalDateTime.of(2022, 1, 1, 13, 35));
+        assertEquals(List.of(task1, subtask), actual);
+        taskManager.deleteTaskById(task1.getId());
+        assertEquals(List.of(subtask, task2), taskManager.getTasksOverlapping(LocalDateTime.of(2022, 1, 1, 0, 0),
+                LocalDateTime.of(2022, 1, 2, 0, 0)));
+    }
+
+    @Test
+    void findFreeSlots_shouldReturnEarliestGapsBetweenScheduledTasks() {
+        Epic epic = createEpic(3, "Epic", null, null, List.of());
+        taskManager.addTask(createTask(1, "Task1", TaskStatus.NEW, "01.01.2022-10:00", 30));
+        taskManager.addTask(createTask(2, "Task2", TaskStatus.NEW, "01.01.2022-11:00", 60));
+        taskManager.addEpic(epic);
+        taskManager.addSubtask(createSubtask(4, "Subtask", 3, TaskStatus.NEW, "01.01.2022-10:40", 10));
+
+        LocalDateTime from = LocalDateTime.of(2022, 1, 1, 10, 0);
+        LocalDateTime to = LocalDateTime.of(2022, 1, 1, 13, 30);
+        assertEquals(List.of(LocalDateTime.of(2022, 1, 1, 12, 0), LocalDateTime.of(2022, 1, 1, 12, 45)),
+                taskManager.findFreeSlots(Duration.ofMinutes(45), from, to, 3));
+        assertEquals(List.of(LocalDateTime.of(2022, 1, 1, 10, 30), LocalDateTime.of(2022, 1, 1, 10, 50)),
+                taskManager.findFreeSlots(Duration.ofMinutes(10), from, to, 2));
+        assertEquals(List.of(), taskManager.findFreeSlots(Duration.ofMinutes(100), from, to, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.findFreeSlots(Duration.ZERO, from, to, 1));
+    }
+
+    @Test
+    void autoSchedule_shouldPlaceUnscheduledTasksLongestFirstIntoFreeSlots() {
+        Epic epic = createEpic(3, "Epic", null, null, List.of());
+        taskManager.addTask(createTask(1, "Task1", TaskStatus.NEW, "01.01.2022-10:00", 30));
+        taskManager.addTask(createTask(2, "Task2", TaskStatus.NEW, "01.01.2022-11:00", 60));
+        taskManager.addEpic(epic);
+        Subtask subtask = createSubtask(4, "Subtask", 3, TaskStatus.NEW, null, 20);
+        Task shortTask = createTask(5, "Task5", TaskStatus.NEW, null, 30);
+        Task longTask = createTask(6, "Task6", TaskStatus.NEW, null, 90);
+        Task instantTask = createTask(7, "Task7", TaskStatus.NEW, null, 0);
+        taskManager.addSubtask(subtask);
+        taskManager.addTask(shortTask);
+        taskManager.addTask(longTask);
+        taskManager.addTask(instantTask);
+
+        LocalDateTime from = LocalDateTime.of(2022, 1, 1, 10, 0);
+        LocalDateTime to = LocalDateTime.of(2022, 1, 1, 14, 0);
+        assertEquals(List.of(subtask), taskManager.autoSchedule(3, from, to));
+        assertEquals(LocalDateTime.of(2022, 1, 1, 10, 30), subtask.getStartTime());
+        assertEquals(subtask.getStartTime(), taskManager.getEpicById(3).getStartTime());
+
+        assertEquals(List.of(longTask, shortTask), taskManager.autoSchedule(null, from, to));
+        assertEquals(LocalDateTime.of(2022, 1, 1, 12, 0), longTask.getStartTime());
+        assertEquals(LocalDateTime.of(2022, 1, 1, 13, 30), shortTask.getStartTime());
+        assertNull(instantTask.getStartTime());
+        assertEquals(List.of(), taskManager.autoSchedule(null, from, to));
+        assertEquals(6, taskManager.getPrioritizedTasks().size());
+    }
+
     @Test
     void updateTask_checkUpdateTaskWithSameStartTime() {
         // create task
@@ -165,6 +251,19 @@ class InMemoryTaskManagerTest {
         assertEquals("Intersection between \"Task3\" and \"Subtask1\"", exception.getMessage());
     }
 
+    @Test
+    void addTask_shouldNotThrowIntersectionException_ForTasksWithoutDurationAtTheSameTime() {
+        Task task1 = createTask(1, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 0);
+        Task task2 = createTask(2, "Task2", TaskStatus.NEW, "01.01.2022-12:20", 0);
+        Task task3 = createTask(3, "Task3", TaskStatus.NEW, "01.01.2022-12:20", 15);
+
+        taskManager.addTask(task1);
+        taskManager.addTask(task2);
+        taskManager.addTask(task3);
+
+        assertEquals(List.of(task1, task2, task3), taskManager.getPrioritizedTasks());
+    }
+
     @Test
     void updateTask_checkThrowIntersectionException_IfTimeOverlaps() {
         // create task
@@ -197,6 +296,28 @@ class InMemoryTaskManagerTest {
         assertEquals("Intersection between \"Task3\" and \"Task2\"", exception.getMessage());
     }
 
+    @Test
+    void getPrioritizedTasks_shouldMoveTaskOnce_WhenStoredTaskIsChangedInPlace() {
+        Task task1 = createTask(1, "Task1", TaskStatus.NEW, "01.01.2022-12:20", 15);
+        Task task2 = createTask(2, "Task2", TaskStatus.NEW, "01.01.2022-13:35", 25);
+        taskManager.addTask(task1);
+        taskManager.addTask(task2);
+        Epic epic = createEpic(3, "Epic", null, null, List.of());
+        taskManager.addEpic(epic);
+        Subtask subtask = createSubtask(4, "Subtask", 3, TaskStatus.NEW, "01.01.2022-13:00", 30);
+        taskManager.addSubtask(subtask);
+
+        task1.setStartTime(LocalDateTime.of(2022, 1, 1, 14, 0));
+        taskManager.updateTask(task1);
+        assertEquals(List.of(subtask, task2, task1), taskManager.getPrioritizedTasks());
+
+        taskManager.deleteAllTasks();
+        assertEquals(List.of(subtask), taskManager.getPrioritizedTasks());
+        taskManager.addTask(task2);
+        taskManager.deleteAllEpics();
+        assertEquals(List.of(task2), taskManager.getPrioritizedTasks());
+    }
+
     @Test
     void getPrioritizedTasks_checkSortingTwoTasksWithoutStartTimeById_TasksShouldBeAtEndOfList() {
         // create task
@@ -289,6 +410,27 @@ class InMemoryTaskManagerTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void deleteAllTasks_shouldFreeOnlyTheirSlots_AndKeepSubtasksIntersecting() {
+        Epic epic = createEpic(3, "Epic", null, null, List.of());
+        taskManager.addTask(createTask(1, "Task1", TaskStatus.NEW, "01.01.2022-10:00", 30));
+        taskManager.addTask(createTask(2, "Task2", TaskStatus.NEW, "01.01.2022-11:00", 60));
+        taskManager.addEpic(epic);
+        Subtask subtask = createSubtask(4, "Subtask", 3, TaskStatus.NEW, "01.01.2022-10:40", 10);
+        taskManager.addSubtask(subtask);
+
+        taskManager.deleteAllTasks();
+
+        LocalDateTime from = LocalDateTime.of(2022, 1, 1, 10, 0);
+        LocalDateTime to = LocalDateTime.of(2022, 1, 1, 12, 0);
+        assertEquals(List.of(from, LocalDateTime.of(2022, 1, 1, 10, 50)),
+                taskManager.findFreeSlots(Duration.ofMinutes(40), from, to, 3));
+        assertEquals(List.of(subtask), taskManager.getTasksOverlapping(from, to));
+        assertThrows(IntersectionException.class,
+                () -> taskManager.addTask(createTask(5, "Task5", TaskStatus.NEW, "01.01.2022-10:30", 20)));
+        taskManager.addTask(createTask(6, "Task6", TaskStatus.NEW, "01.01.2022-10:00", 30));
+    }
+
     @Test
     void deleteAllSubtasks_checkDeleteAllSubtasksInPrioritizedTasks_AndCheckNewTimeOfEpic() {
         // create task
@@ -715,6 +857,27 @@ class InMemoryTaskManagerTest {
         assertEquals(TaskStatus.DONE, epic.getStatus());
     }
 
+    @Test
+    void updateSubtask_shouldRecalculateEpic_WhenStoredSubtaskIsChangedInPlace() {
+        taskManager.addEpic(createEpic(1, "Epic", null, null, List.of()));
+        taskManager.addSubtask(createSubtask(2, "Subtask1", 1, TaskStatus.NEW, "01.01.2022-10:00", 30));
+        taskManager.addSubtask(createSubtask(3, "Subtask2", 1, TaskStatus.NEW, "01.01.2022-12:00", 60));
+        Subtask subtask = taskManager.getSubtaskById(2);
+
+        subtask.setStatus(TaskStatus.DONE);
+        subtask.setStartTime(LocalDateTime.of(2022, 1, 1, 14, 0));
+        taskManager.updateSubtask(subtask);
+
+        Epic epic = taskManager.getEpicById(1);
+        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus());
+        assertEquals(LocalDateTime.of(2022, 1, 1, 12, 0), epic.getStartTime());
+        assertEquals(LocalDateTime.of(2022, 1, 1, 14, 30), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(90), epic.getDuration());
+        taskManager.deleteSubtaskById(3);
+        assertEquals(TaskStatus.DONE, taskManager.getEpicById(1).getStatus());
+        assertEquals(LocalDateTime.of(2022, 1, 1, 14, 0), taskManager.getEpicById(1).getStartTime());
+    }
+
     @Test
     void updateEpic_shouldUpdateEpicInTaskManager() {
         // create task
@@ -0,0 +1,163 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.tasktracker.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntervalIndexTest {
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2022, 1, 1, 0, 0);
+
+    private final IntervalIndex intervalIndex = new IntervalIndex();
+
+    @Test
+    void findOverlapping_shouldMatchLinearScan_AfterRandomAddsAndRemoves() {
+        Random random = new Random(42);
+        Map<Integer, Task> indexedTasks = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            int id = random.nextInt(1_000);
+            if (random.nextInt(3) == 0) {
+                intervalIndex.remove(id);
+                indexedTasks.remove(id);
+            } else {
+                Task task = createTask(id, random.nextInt(10_000), random.nextInt(120));
+                intervalIndex.add(task);
+                indexedTasks.put(id, task);
+            }
+            if (i % 100 == 0) {
+                LocalDateTime from = START_TIME.plusMinutes(random.nextInt(10_000));
+                LocalDateTime to = from.plusMinutes(random.nextInt(300));
+                List<Task> expected = indexedTasks.values().stream()
+                        .filter(task -> overlaps(task, from, to))
+                        .sorted(Comparator.comparing(Task::getStartTime).thenComparing(Task::getId))
+                        .toList();
+                assertEquals(expected, intervalIndex.findOverlapping(from, to));
+                assertEquals(!expected.isEmpty(), intervalIndex.hasOverlapping(from, to));
+            }
+        }
+        assertEquals(indexedTasks.size(), intervalIndex.size());
+    }
+
+    @Test
+    void findFreeSlot_shouldMatchLinearScan_AfterRandomAddsAndRemoves() {
+        Random random = new Random(7);
+        Map<Integer, Task> indexedTasks = new HashMap<>();
+        for (int i = 0; i < 3_000; i++) {
+            int id = random.nextInt(300);
+            if (random.nextInt(4) == 0) {
+                intervalIndex.remove(id);
+                indexedTasks.remove(id);
+            } else {
+                // overlapping tasks are allowed here, the index must not rely on them being disjoint
+                Task task = createTask(id, random.nextInt(10_000), random.nextInt(60));
+                intervalIndex.add(task);
+                indexedTasks.put(id, task);
+            }
+            if (i % 50 == 0) {
+                Duration duration = Duration.ofMinutes(1 + random.nextInt(90));
+                LocalDateTime from = START_TIME.plusMinutes(random.nextInt(10_000));
+                LocalDateTime to = from.plusMinutes(random.nextInt(2_000));
+                assertEquals(findFreeSlotLinearly(indexedTasks.values(), duration, from, to),
+                        intervalIndex.findFreeSlot(duration, from, to));
+            }
+        }
+    }
+
+    @Test
+    void findFreeSlot_shouldFindSlot_InWindowBeforeEpoch() {
+        LocalDateTime from = LocalDateTime.of(1960, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(1960, 1, 2, 0, 0);
+        assertEquals(from, intervalIndex.findFreeSlot(Duration.ofMinutes(30), from, to));
+
+        Task task = new Task();
+        task.setId(1);
+        task.setName("Task1");
+        task.setStartTime(from);
+        task.setDuration(60);
+        intervalIndex.add(task);
+
+        assertEquals(from.plusMinutes(60), intervalIndex.findFreeSlot(Duration.ofMinutes(30), from, to));
+    }
+
+    @Test
+    void rebuild_shouldIndexSortedTasksAndSkipUnscheduled() {
+        List<Task> sortedTasks = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            sortedTasks.add(createTask(i, i * 10, 5));
+        }
+        Task unscheduled = new Task();
+        unscheduled.setId(101);
+        sortedTasks.add(unscheduled);
+
+        intervalIndex.rebuild(sortedTasks);
+
+        assertEquals(100, intervalIndex.size());
+        assertEquals(sortedTasks.subList(9, 12),
+                intervalIndex.findOverlapping(START_TIME.plusMinutes(100), START_TIME.plusMinutes(121)));
+        assertFalse(intervalIndex.hasOverlapping(START_TIME.plusMinutes(105), START_TIME.plusMinutes(110)));
+        assertTrue(intervalIndex.hasOverlapping(START_TIME.plusMinutes(104), START_TIME.plusMinutes(104)));
+    }
+
+    @Test
+    void hasOverlapping_shouldNotCollideTasksWithoutDuration_AtTheSameStart() {
+        intervalIndex.add(createTask(1, 10, 0));
+        intervalIndex.add(createTask(2, 20, 30));
+
+        assertFalse(intervalIndex.hasOverlapping(START_TIME.plusMinutes(10), START_TIME.plusMinutes(10)));
+        assertFalse(intervalIndex.hasOverlapping(START_TIME.plusMinutes(20), START_TIME.plusMinutes(20)));
+        assertTrue(intervalIndex.hasOverlapping(START_TIME.plusMinutes(30), START_TIME.plusMinutes(30)));
+        assertTrue(intervalIndex.hasOverlapping(START_TIME.plusMinutes(5), START_TIME.plusMinutes(15)));
+    }
+
+    // the earliest free slot starts either at from or where some task ends
+    private LocalDateTime findFreeSlotLinearly(Iterable<Task> tasks, Duration duration, LocalDateTime from,
+                                               LocalDateTime to) {
+        List<LocalDateTime> candidates = new ArrayList<>();
+        candidates.add(from);
+        for (Task task : tasks) {
+            if (task.getEndTime().isAfter(from)) {
+                candidates.add(task.getEndTime());
+            }
+        }
+        candidates.sort(Comparator.naturalOrder());
+        for (LocalDateTime candidate : candidates) {
+            LocalDateTime end = candidate.plus(duration);
+            if (end.isAfter(to)) {
+                return null;
+            }
+            boolean free = true;
+            for (Task task : tasks) {
+                free &= !overlaps(task, candidate, end);
+            }
+            if (free) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // same rule as the index: empty intervals overlap only what runs across their moment
+    private boolean overlaps(Task task, LocalDateTime from, LocalDateTime to) {
+        return task.getStartTime().isBefore(to) && task.getEndTime().isAfter(from);
+    }
+
+    private Task createTask(int id, int startMinute, long duration) {
+        Task task = new Task();
+        task.setId(id);
+        task.setName("Task" + id);
+        task.setStartTime(START_TIME.plusMinutes(startMinute));
+        task.setDuration(duration);
+        return task;
+    }
+}
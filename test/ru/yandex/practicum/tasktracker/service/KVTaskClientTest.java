@@ -0,0 +1,73 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.tasktracker.server.KVServer;
+import ru.yandex.practicum.tasktracker.server.KVTaskClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KVTaskClientTest {
+    private static final String SERVER_URL = "http://localhost:" + KVServer.PORT;
+    private KVServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new KVServer();
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void load_shouldReturnValueSavedByPut() throws IOException, InterruptedException {
+        KVTaskClient client = new KVTaskClient(SERVER_URL);
+        client.put("tasks", "[1,2,3]");
+        client.put("tasks", "[4]");
+
+        assertEquals("[4]", client.load("tasks"));
+    }
+
+    // a stub server records the client port of every save, one connection kept alive means a single port
+    @Test
+    void put_shouldReuseOneConnection_ForConsecutiveRequests() throws IOException, InterruptedException {
+        HttpServer stubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        stubServer.createContext("/register", exchange -> respond(exchange, "token"));
+        stubServer.createContext("/save", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, "ok");
+        });
+        stubServer.start();
+        try {
+            KVTaskClient client = new KVTaskClient("http://localhost:" + stubServer.getAddress().getPort());
+            for (int i = 0; i < 10; i++) {
+                client.put("tasks", "[" + i + "]");
+            }
+        } finally {
+            stubServer.stop(0);
+        }
+
+        assertEquals(1, clientPorts.size());
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
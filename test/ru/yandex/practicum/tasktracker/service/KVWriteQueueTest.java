@@ -0,0 +1,60 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.tasktracker.server.KVServer;
+import ru.yandex.practicum.tasktracker.server.KVTaskClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KVWriteQueueTest {
+    private KVServer server;
+    private KVTaskClient client;
+
+    @BeforeEach
+    void startServer() throws IOException, InterruptedException {
+        server = new KVServer();
+        server.start();
+        client = new KVTaskClient("http://localhost:" + KVServer.PORT);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void write_shouldStoreLastValueOfEveryKey_WithAndWithoutCoalescing() {
+        for (boolean coalescing : new boolean[]{false, true}) {
+            KVWriteQueue writeQueue = new KVWriteQueue(client, 16, coalescing);
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                writes.add(writeQueue.write("tasks", "[" + i + "]"));
+                writes.add(writeQueue.write("history", "[" + (i * 2) + "]"));
+            }
+            writeQueue.flush().join();
+
+            assertTrue(writes.stream().allMatch(CompletableFuture::isDone));
+            assertEquals("[99]", client.load("tasks"));
+            assertEquals("[198]", client.load("history"));
+        }
+    }
+
+    @Test
+    void write_shouldWaitForOutstandingWrite_WhenLimitIsReached() {
+        KVWriteQueue writeQueue = new KVWriteQueue(client, 1, false);
+        CompletableFuture<Void> first = writeQueue.write("tasks", "[1]");
+        writeQueue.write("epics", "[2]");
+
+        assertTrue(first.isDone());
+        writeQueue.flush().join();
+        assertEquals("[2]", client.load("epics"));
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.tasktracker.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedHistoryManagerTest extends InMemoryHistoryManagerTest {
+    private final PartitionedHistoryManager partitionedHistory =
+            new PartitionedHistoryManager(new InMemoryHistoryManager(), 2, 4);
+
+    @Override
+    protected HistoryManager createHistoryManager() {
+        return new PartitionedHistoryManager(new InMemoryHistoryManager());
+    }
+
+    @AfterEach
+    void clearClient() {
+        PartitionedHistoryManager.setCurrentClient(null);
+    }
+
+    @Test
+    void getHistory_shouldReturnOnlyViewsOfClient_AndAllViewsToSharedHistory() {
+        Task task1 = task(1);
+        Task task2 = task(2);
+        Task task3 = task(3);
+        PartitionedHistoryManager.setCurrentClient("alice");
+        partitionedHistory.add(task1);
+        partitionedHistory.add(task2);
+        PartitionedHistoryManager.setCurrentClient("bob");
+        partitionedHistory.add(task3);
+        partitionedHistory.add(task1);
+
+        assertEquals(List.of(task1, task2), partitionedHistory.getHistory("alice"));
+        assertEquals(List.of(task3, task1), partitionedHistory.getHistory("bob"));
+        assertTrue(partitionedHistory.getHistory("carol").isEmpty());
+        assertEquals(List.of(task2, task3, task1), partitionedHistory.getHistory());
+        assertEquals(List.of(task2, task3, task1), partitionedHistory.getHistory(null));
+    }
+
+    @Test
+    void add_shouldKeepOnlyLastViewsOfClient_AndDropLeastRecentlyActiveClient() {
+        PartitionedHistoryManager.setCurrentClient("alice");
+        partitionedHistory.add(task(1));
+        partitionedHistory.add(task(2));
+        partitionedHistory.add(task(3));
+        PartitionedHistoryManager.setCurrentClient("bob");
+        partitionedHistory.add(task(4));
+        assertEquals(List.of(task(2), task(3)), partitionedHistory.getHistory("alice"));
+
+        PartitionedHistoryManager.setCurrentClient("carol");
+        partitionedHistory.add(task(5));
+        assertEquals(2, partitionedHistory.partitionCount());
+        assertTrue(partitionedHistory.getHistory("bob").isEmpty());
+        assertEquals(List.of(task(2), task(3)), partitionedHistory.getHistory("alice"));
+    }
+
+    @Test
+    void add_shouldKeepEveryClientsViews_WhenClientsViewConcurrently() throws InterruptedException {
+        PartitionedHistoryManager history = new PartitionedHistoryManager(new InMemoryHistoryManager(), 1_000, 4_000);
+        List<Thread> threads = new ArrayList<>();
+        for (int client = 0; client < 4; client++) {
+            String clientId = "client" + client;
+            threads.add(new Thread(() -> {
+                PartitionedHistoryManager.setCurrentClient(clientId);
+                for (int id = 0; id < 1_000; id++) {
+                    history.add(task(id));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(4, history.partitionCount());
+        for (int client = 0; client < 4; client++) {
+            assertEquals(1_000, history.getHistory("client" + client).size());
+        }
+        assertEquals(1_000, history.getHistory().size());
+    }
+
+    @Test
+    void remove_shouldRemoveTaskFromEveryPartition() {
+        PartitionedHistoryManager.setCurrentClient("alice");
+        partitionedHistory.add(task(1));
+        PartitionedHistoryManager.setCurrentClient("bob");
+        partitionedHistory.add(task(1));
+        partitionedHistory.add(task(2));
+
+        partitionedHistory.remove(1);
+        assertTrue(partitionedHistory.getHistory("alice").isEmpty());
+        assertEquals(List.of(task(2)), partitionedHistory.getHistory("bob"));
+        assertEquals(List.of(task(2)), partitionedHistory.getHistory());
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.tasktracker.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.tasktracker.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedHistoryManagerTest extends InMemoryHistoryManagerTest {
+    private static final int THREAD_COUNT = 8;
+    private static final int VIEWS_PER_THREAD = 5_000;
+
+    @Override
+    protected HistoryManager createHistoryManager() {
+        return new StripedHistoryManager(new InMemoryHistoryManager(), 4, 8);
+    }
+
+    @Test
+    void getHistory_shouldKeepViewOrderOfEveryThread_WhenViewsAreRecordedConcurrently() throws InterruptedException {
+        runConcurrently(thread -> {
+            for (int i = 0; i < VIEWS_PER_THREAD; i++) {
+                historyManager.add(task(thread * VIEWS_PER_THREAD + i));
+            }
+        });
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(THREAD_COUNT * VIEWS_PER_THREAD, history.size());
+        int[] lastIdOfThread = new int[THREAD_COUNT];
+        Arrays.fill(lastIdOfThread, -1);
+        for (Task task : history) {
+            int thread = task.getId() / VIEWS_PER_THREAD;
+            assertTrue(task.getId() > lastIdOfThread[thread]);
+            lastIdOfThread[thread] = task.getId();
+        }
+    }
+
+    @Test
+    void getHistory_shouldReturnLastViewedTaskLast_AfterConcurrentViewsOfSameTasks() throws InterruptedException {
+        runConcurrently(thread -> {
+            for (int i = 0; i < VIEWS_PER_THREAD; i++) {
+                historyManager.add(task(i % 10));
+            }
+        });
+        Task lastViewed = task(3);
+        historyManager.add(lastViewed);
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(10, history.size());
+        assertEquals(lastViewed, history.get(history.size() - 1));
+    }
+
+    @Test
+    void getTaskById_shouldRecordEveryView_WhenCalledConcurrently() throws InterruptedException {
+        TaskManager taskManager = new InMemoryTaskManager(new StripedHistoryManager(new InMemoryHistoryManager()));
+        List<Task> tasks = new ArrayList<>();
+        for (int id = 1; id <= THREAD_COUNT; id++) {
+            Task task = task(id);
+            task.setName("Task" + id);
+            taskManager.addTask(task);
+            tasks.add(task);
+        }
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < VIEWS_PER_THREAD; i++) {
+                taskManager.getTaskById(thread + 1);
+            }
+        });
+        assertEquals(tasks.size(), taskManager.getHistory().size());
+        assertTrue(taskManager.getHistory().containsAll(tasks));
+    }
+
+    private static void runConcurrently(IntConsumer action) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < THREAD_COUNT; thread++) {
+            int threadNumber = thread;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                action.accept(threadNumber);
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.tasktracker.utils;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.tasktracker.model.Task;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntObjectMapTest {
+    private static final int ENTRY_COUNT = 200_000;
+
+    @Test
+    void intObjectMap_shouldMatchHashMap_AfterRandomPutsAndRemoves() {
+        Random random = new Random(3);
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            // clustered and spread keys, so removals have to shift probe sequences that wrap around
+            int key = random.nextBoolean() ? random.nextInt(64) : random.nextInt(1 << 20) - (1 << 19);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            }
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.keySet(), map.keySet());
+        Set<Integer> keys = new HashSet<>();
+        map.forEachKey(keys::add);
+        assertEquals(expected.keySet(), keys);
+    }
+
+    @Test
+    void intSet_shouldMatchHashSet_AfterRandomAddsAndRemoves() {
+        Random random = new Random(5);
+        IntSet set = new IntSet();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            int element = random.nextBoolean() ? random.nextInt(64) : random.nextInt(1 << 20) - (1 << 19);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(element), set.remove(element));
+            } else {
+                assertEquals(expected.add(element), set.add(element));
+            }
+            assertEquals(expected.contains(element), set.contains(element));
+        }
+        assertEquals(expected, set);
+        Set<Integer> elements = new HashSet<>();
+        set.forEachInt(elements::add);
+        assertEquals(expected, elements);
+    }
+
+    // the footprint is the two arrays: a power of two slots at most three quarters full, no entry objects
+    @Test
+    void capacity_shouldStayTheSmallestWithinLoadFactor_AfterPuts() {
+        Task task = new Task();
+        IntObjectMap<Task> map = new IntObjectMap<>();
+        for (int id = 1; id <= ENTRY_COUNT; id++) {
+            map.put(id, task);
+        }
+        assertEquals(524_288, map.capacity());
+
+        IntObjectMap<Task> presizedMap = new IntObjectMap<>(ENTRY_COUNT);
+        for (int id = 1; id <= ENTRY_COUNT; id++) {
+            presizedMap.put(id, task);
+        }
+        assertEquals(524_288, presizedMap.capacity());
+    }
+}